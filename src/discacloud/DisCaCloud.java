@@ -3,10 +3,7 @@ package discacloud;
 import com.maxmind.geoip2.DatabaseReader;
 import com.maxmind.geoip2.model.CityResponse;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -19,6 +16,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
@@ -37,29 +38,162 @@ import org.cloudbus.cloudsim.VmAllocationPolicySimple;
 import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.HeapEventQueue;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import parsers.MappedTraceReader;
 import parsers.RequestDatum;
+import parsers.RequestFilter;
 import parsers.RequestTextReaderInterface;
-import parsers.WSharkTextReader;
 
 import org.apache.commons.math3.distribution.*;
 
-public class DisCaCloud {
+public class DisCaCloud implements Runnable {
 
-    private static int vmid = 0;
-    private static int clid = 0;
-    private static DecimalFormat dft = new DecimalFormat("###,#00.0");
+    private static final int NUM_USER = 100;
 
-    public static void main(String[] args) throws FileNotFoundException, UnknownHostException, IOException {
+    //ATAKAN: Serializes the writes of the runs of a sweep to the result files.
+    private static final Object RESULT_LOCK = new Object();
+
+    private final int cacheQuantum;
+    private final double aggression;
+    private final int numRecords;
+    private final boolean batch;
+
+    //ATAKAN: Whether the context of the run shares the topology of another one instead of building it.
+    private final boolean sharedTopology;
+
+    private int vmid = 0;
+    private int clid = 0;
+    private final DecimalFormat dft = new DecimalFormat("###,#00.0");
+
+    public DisCaCloud(int cacheQuantum, double aggression, int numRecords, boolean batch, boolean sharedTopology) {
+        this.cacheQuantum = cacheQuantum;
+        this.aggression = aggression;
+        this.numRecords = numRecords;
+        this.batch = batch;
+        this.sharedTopology = sharedTopology;
+    }
+
+    /**
+     * Runs the default configuration, or the one given by the arguments:
+     * cache quantum, aggression and number of records. Several quanta or
+     * aggressions separated by commas run every combination, see
+     * {@link #sweep(String[], String[], int)}.
+     *
+     * @param args the arguments
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            new DisCaCloud(5000, 0.008, 200000, false, false).run();
+            return;
+        }
+        String[] quanta = args[0].split(",");
+        String[] aggressions = args[1].split(",");
+        int numRecords = Integer.parseInt(args[2]);
+        if (quanta.length == 1 && aggressions.length == 1) {
+            new DisCaCloud(Integer.parseInt(quanta[0]), Double.parseDouble(aggressions[0]), numRecords, true, false).run();
+        } else {
+            sweep(quanta, aggressions, numRecords);
+        }
+    }
+
+    /**
+     * Runs every combination of cache quantum and aggression on a thread pool
+     * of one thread per processor. The topology is built once in a context
+     * shared by the runs, and each run has its own context.
+     *
+     * @param quanta the cache quanta
+     * @param aggressions the aggressions
+     * @param numRecords the number of records of each run
+     */
+    public static void sweep(String[] quanta, String[] aggressions, int numRecords) throws Exception {
+        final SimulationContext shared = new SimulationContext();
+        shared.call(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                CloudSim.init(NUM_USER, Calendar.getInstance(), false, new HeapEventQueue());
+                createEntities(new HashMap<Integer, Datacenter>(), new HashMap<Integer, DatacenterBroker>(), true);
+                return null;
+            }
+        });
+
+        int runs = quanta.length * aggressions.length;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(runs, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (String quantum : quanta) {
+                for (String aggression : aggressions) {
+                    final DisCaCloud simulation = new DisCaCloud(Integer.parseInt(quantum), Double.parseDouble(aggression), numRecords, true, true);
+                    results.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            new SimulationContext(shared).run(simulation);
+                        }
+                    }));
+                }
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates the datacenters and their brokers. If the topology is built, the
+     * datacenters are mapped to its nodes and linked to their brokers.
+     * Otherwise the context shares the topology of one where they were
+     * created in the same order, so they get the ids already mapped.
+     *
+     * @param dcList the datacenters, by id
+     * @param brList the brokers, by id
+     * @param buildTopology whether to build the topology
+     */
+    private static void createEntities(HashMap<Integer, Datacenter> dcList, HashMap<Integer, DatacenterBroker> brList, boolean buildTopology) throws Exception {
+        HashMap<Integer, String> labelMap = new HashMap<>();
+        if (buildTopology) {
+            NetworkTopology.setMatrixCacheDirectory(new File("matrixCache"));
+            NetworkTopology.buildNetworkTopology("C:\\topology100.brite");
+        }
+
+        for (int i = 0; i < NUM_USER; i++) {
+            Datacenter dc = createDatacenter("DC_" + i); //labels.get(i)
+            dcList.put(dc.getId(), dc);
+            if (buildTopology) {
+                NetworkTopology.mapNode(dc.getId(), i);
+            }
+        }
+        //System.out.println("DCs created...");
+        for (Datacenter dc : dcList.values()) {
+            labelMap.put(dc.getId(), dc.getName());
+            String name = dc.getName() + "_BROKER";
+            DatacenterBroker br = createBroker(name);
+            br.setBindedDC(dc.getId());
+            dc.setBindedBR(br.getId());
+            brList.put(br.getId(), br);
+            if (buildTopology) {
+                NetworkTopology.addLink(dc.getId(), br.getId(), 10.0, 0.1);
+            }
+        }
+        if (buildTopology) {
+            NetworkTopology.generateMatrices();
+        }
+
+        //System.out.println("Links added...");
+        Datacenter.setLabelMap(labelMap);
+    }
+
+    @Override
+    public void run() {
 
-        boolean batch = false;
         String fileName = "";
 
-        if (args.length > 0) {
-            batch = true;
-            int val = (int) (Double.parseDouble(args[1]) * 1000);
+        if (batch) {
+            int val = (int) (aggression * 1000);
             fileName = val + ".txt";
             //fileName = args[0] + ".txt";
             System.out.println(fileName);
@@ -70,56 +204,34 @@ public class DisCaCloud {
         Log.printLine("Starting DisCaCloud...");
 
         try {
-            int num_user = 100;
+            int num_user = NUM_USER;
             Calendar calendar = Calendar.getInstance();
             boolean trace_flag = false;
             int[] dcLoads = new int[num_user + 2];
 
-            CloudSim.init(num_user, calendar, trace_flag);
+            CloudSim.init(num_user, calendar, trace_flag, new HeapEventQueue());
 
             //CONFIGURATION
-            CloudSim.setCacheQuantum(batch ? Integer.parseInt(args[0]) : 5000);
+            CloudSim.setCacheQuantum(cacheQuantum);
             Log.setIntervalDuration(CloudSim.getCacheQuantum());
-            CloudSim.setAggression(batch ? Double.parseDouble(args[1]) : 0.008);
+            CloudSim.setAggression(aggression);
             //CloudSim.enableCache(100);
             int mainDcId;
             int planeSize = 1000;
             boolean geoLocation = true;
             String requestFile = "wSharkLogs/juice1M.txt";
-            RequestTextReaderInterface wsReader = new WSharkTextReader();
+            RequestTextReaderInterface wsReader = new MappedTraceReader();
             int totalRecords = 1000000;
-            int numRecords = batch ? Integer.parseInt(args[2]) : 200000;
             int numRequests = 0;
             int timeOffset = 0;
             double timeDiv = 10;
 
-            HashMap<Integer, String> labelMap = new HashMap<>();
-            NetworkTopology.buildNetworkTopology("C:\\topology100.brite");
-
             HashMap<Integer, Datacenter> dcList = new HashMap<>();
             HashMap<Integer, DatacenterBroker> brList = new HashMap<>();
             HashSet<Integer> dataObjectIds = new HashSet<>();
             HashSet<String> clientIds = new HashSet<>();
 
-            for (int i = 0; i < num_user; i++) {
-                Datacenter dc = createDatacenter("DC_" + i); //labels.get(i)
-                dcList.put(dc.getId(), dc);
-                NetworkTopology.mapNode(dc.getId(), i);
-            }
-            //System.out.println("DCs created...");
-            for (Datacenter dc : dcList.values()) {
-                labelMap.put(dc.getId(), dc.getName());
-                String name = dc.getName() + "_BROKER";
-                DatacenterBroker br = createBroker(name);
-                br.setBindedDC(dc.getId());
-                dc.setBindedBR(br.getId());
-                brList.put(br.getId(), br);
-                NetworkTopology.addLink(dc.getId(), br.getId(), 10.0, 0.1);
-            }
-            NetworkTopology.generateMatrices();
-
-            //System.out.println("Links added...");
-            Datacenter.setLabelMap(labelMap);
+            createEntities(dcList, brList, !sharedTopology);
             mainDcId = NetworkTopology.getMostCentralDc();
 
             File GeoDatabase = null;
@@ -132,16 +244,11 @@ public class DisCaCloud {
             int storageSize = 0;
             //System.out.println("Geolocation starts here...");
 
-            int modulo = totalRecords / numRecords;
-            int counter = 0;
+            RequestFilter sampling = new RequestFilter().setLimit(totalRecords).setStride(totalRecords / numRecords);
 
             RealDistribution rd = new UniformRealDistribution(0, 1000);
 
-            for (RequestDatum w : wsReader.readNRecords(totalRecords)) {
-                counter++;
-                if (counter % modulo > 0) {
-                    continue;
-                }
+            for (RequestDatum w : wsReader.records(sampling)) {
                 Datacenter selectedDC = null;
                 double x = 0;
                 double y = 0;
@@ -223,37 +330,24 @@ public class DisCaCloud {
 
             if (batch) {
                 String text = ("[Quantum, Aggression, MainDC, GeoLocation, Input, Cache] = [" + CloudSim.getCacheQuantum() + ", " + CloudSim.getAggression() + ", " + mainDcId + ", " + geoLocation + ", " + requestFile + ", " + CloudSim.isCacheEnabled() + "]");
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dft.format(clList.get(clList.size() - 1).getFinishTime()));
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + numRequests;
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + clList.size();
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dataObjectIds.size());
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (Log.getDataReturnedFromMainDC());
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (Log.getDataReturnedFromCache());
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (Log.getDataFoundInLocalCache());
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (Log.getDataFoundInLocalMainDC());
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (Log.getDataNotFound());
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dft.format(Log.getStorageCost()));
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dft.format(Log.getMessageLatency(CloudSimTags.REMOTE_DATA_RETURN)));
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dft.format(Log.getMessageLatency(CloudSimTags.REMOTE_DATA_NOT_FOUND)));
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dft.format(clList.get(clList.size() - 1).getFinishTime() * storageSize * CloudSim.storageCosts.get(mainDcId)));
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + (dft.format(Log.getBandwidthCost()));
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
-                text = "\n" + ("[Creation, Duplication, Migration, Removal] = [" + Log.getCreation() + ", " + Log.getDuplication() + ", " + Log.getMigration() + ", " + Log.getRemoval() + "]") + "\n----\n";
-                Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
+                text += "\n" + (dft.format(clList.get(clList.size() - 1).getFinishTime()));
+                text += "\n" + numRequests;
+                text += "\n" + clList.size();
+                text += "\n" + (dataObjectIds.size());
+                text += "\n" + (Log.getDataReturnedFromMainDC());
+                text += "\n" + (Log.getDataReturnedFromCache());
+                text += "\n" + (Log.getDataFoundInLocalCache());
+                text += "\n" + (Log.getDataFoundInLocalMainDC());
+                text += "\n" + (Log.getDataNotFound());
+                text += "\n" + (dft.format(Log.getStorageCost()));
+                text += "\n" + (dft.format(Log.getMessageLatency(CloudSimTags.REMOTE_DATA_RETURN)));
+                text += "\n" + (dft.format(Log.getMessageLatency(CloudSimTags.REMOTE_DATA_NOT_FOUND)));
+                text += "\n" + (dft.format(clList.get(clList.size() - 1).getFinishTime() * storageSize * CloudSim.getStorageCosts().get(mainDcId)));
+                text += "\n" + (dft.format(Log.getBandwidthCost()));
+                text += "\n" + ("[Creation, Duplication, Migration, Removal] = [" + Log.getCreation() + ", " + Log.getDuplication() + ", " + Log.getMigration() + ", " + Log.getRemoval() + "]") + "\n----\n";
+                synchronized (RESULT_LOCK) {
+                    Files.write(Paths.get(fileName), text.getBytes(), StandardOpenOption.APPEND);
+                }
             } else {
                 //Log.printIntervals();
                 System.out.println("Configuration: [Quantum, Aggression, MainDC, GeoLocation, Input, Cache] = [" + CloudSim.getCacheQuantum() + ", " + CloudSim.getAggression() + ", " + mainDcId + ", " + geoLocation + ", " + requestFile + ", " + CloudSim.isCacheEnabled() + "(" + CloudSim.getCacheLength() + ")]");
@@ -270,7 +364,7 @@ public class DisCaCloud {
                 System.out.println("Storage Cost: " + dft.format(Log.getStorageCost()));
                 System.out.println("Total Latency: " + dft.format(Log.getMessageLatency(CloudSimTags.REMOTE_DATA_RETURN)));
                 System.out.println("Total Failure Latency: " + dft.format(Log.getMessageLatency(CloudSimTags.REMOTE_DATA_NOT_FOUND)));
-                System.out.println("Main Storage Cost: " + dft.format(clList.get(clList.size() - 1).getFinishTime() * storageSize * CloudSim.storageCosts.get(mainDcId)));
+                System.out.println("Main Storage Cost: " + dft.format(clList.get(clList.size() - 1).getFinishTime() * storageSize * CloudSim.getStorageCosts().get(mainDcId)));
                 System.out.println("Bandwidth Cost: " + dft.format(Log.getBandwidthCost()));
                 System.out.println("Notification Percentage: " + dft.format(Log.getNotificationPercentage()));
                 System.out.println("OPERATIONS: [Creation, Duplication, Migration, Removal] = [" + Log.getCreation() + ", " + Log.getDuplication() + ", " + Log.getMigration() + ", " + Log.getRemoval() + "]");
@@ -350,8 +444,8 @@ public class DisCaCloud {
             e.printStackTrace();
         }
 
-        CloudSim.storageCosts.put(datacenter.getId(), 0.03);  //Amazon S3 per GB
-        CloudSim.bandwidthCosts.put(datacenter.getId(), 0.09); //Amazon S3 per GB
+        CloudSim.getStorageCosts().put(datacenter.getId(), 0.03);  //Amazon S3 per GB
+        CloudSim.getBandwidthCosts().put(datacenter.getId(), 0.09); //Amazon S3 per GB
 
         return datacenter;
     }
@@ -380,7 +474,7 @@ public class DisCaCloud {
      *
      * @param list list of Cloudlets
      */
-    private static void printCloudletList(List<Cloudlet> list) {
+    private void printCloudletList(List<Cloudlet> list) {
         int size = list.size();
         Cloudlet cloudlet;
 
@@ -411,7 +505,7 @@ public class DisCaCloud {
         }
     }
 
-    private static void createLoad(int mainDcId, Datacenter dc, DatacenterBroker br, int start, List<Integer> dataRequests, String clientId) {
+    private void createLoad(int mainDcId, Datacenter dc, DatacenterBroker br, int start, List<Integer> dataRequests, String clientId) {
         int mips = 500;
         long size = 10000; // image size (MB)
         int ram = 512; // vm memory (MB)
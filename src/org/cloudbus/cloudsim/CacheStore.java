@@ -0,0 +1,237 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.Datacenter.Cache;
+
+/**
+ * The caches kept in a datacenter, indexed by data object id. The caches are
+ * stored in a dense array and an open addressing table of primitive ints maps
+ * each data object id to its position in the array, so finding, adding and
+ * removing a cache take constant time without boxing the id. As with the
+ * <tt>HashSet&lt;Cache&gt;</tt> it replaces, a datacenter holds at most one
+ * cache per data object.
+ * <p>
+ * The iteration order is not specified and the store must not be modified
+ * while it is iterated.
+ *
+ * @author Atakan
+ */
+final class CacheStore implements Iterable<Cache> {
+
+    /**
+     * The initial capacity of the index, a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The caches, in positions 0 to size - 1.
+     */
+    private Cache[] caches = new Cache[INITIAL_CAPACITY / 2];
+
+    /**
+     * The data object ids of the index slots.
+     */
+    private int[] keys = new int[INITIAL_CAPACITY];
+
+    /**
+     * The positions of the caches plus one, 0 for an empty slot.
+     */
+    private int[] positions = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of caches.
+     */
+    private int size = 0;
+
+    /**
+     * Gets the cache of a data object.
+     *
+     * @param dataObjectID the data object id
+     * @return the cache or <tt>null</tt> if there is none
+     */
+    public Cache get(int dataObjectID) {
+        int slot = find(dataObjectID);
+        return slot < 0 ? null : caches[positions[slot] - 1];
+    }
+
+    /**
+     * Checks whether there is a cache of a data object.
+     *
+     * @param dataObjectID the data object id
+     * @return true, if there is a cache
+     */
+    public boolean contains(int dataObjectID) {
+        return find(dataObjectID) >= 0;
+    }
+
+    /**
+     * Adds a cache, unless there is already one for its data object.
+     *
+     * @param c the cache
+     * @return true, if the cache is added
+     */
+    public boolean add(Cache c) {
+        int mask = keys.length - 1;
+        int slot = mix(c.getDataObjectID()) & mask;
+        while (positions[slot] != 0) {
+            if (keys[slot] == c.getDataObjectID()) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == caches.length) {
+            caches = Arrays.copyOf(caches, size * 2);
+        }
+        caches[size++] = c;
+        keys[slot] = c.getDataObjectID();
+        positions[slot] = size;
+        if (2 * size > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the cache of a data object.
+     *
+     * @param dataObjectID the data object id
+     * @return the removed cache or <tt>null</tt> if there is none
+     */
+    public Cache remove(int dataObjectID) {
+        int slot = find(dataObjectID);
+        if (slot < 0) {
+            return null;
+        }
+        int position = positions[slot] - 1;
+        Cache removed = caches[position];
+        deleteSlot(slot);
+
+        // move the last cache into the freed position
+        int last = --size;
+        if (position != last) {
+            Cache moved = caches[last];
+            caches[position] = moved;
+            positions[find(moved.getDataObjectID())] = position + 1;
+        }
+        caches[last] = null;
+        return removed;
+    }
+
+    /**
+     * Removes the cache of the same data object as a given cache.
+     *
+     * @param c the cache
+     * @return true, if a cache is removed
+     */
+    public boolean remove(Cache c) {
+        return remove(c.getDataObjectID()) != null;
+    }
+
+    /**
+     * Gets the number of caches.
+     *
+     * @return the number of caches
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the store is empty.
+     *
+     * @return true, if there are no caches
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<Cache> iterator() {
+        return new Iterator<Cache>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Cache next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return caches[next++];
+            }
+        };
+    }
+
+    /**
+     * Finds the index slot of a data object.
+     *
+     * @param dataObjectID the data object id
+     * @return the slot or -1 if the data object is not in the store
+     */
+    private int find(int dataObjectID) {
+        int mask = keys.length - 1;
+        for (int slot = mix(dataObjectID) & mask; positions[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == dataObjectID) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Empties an index slot, shifting back the entries of the same probe
+     * sequence so that no tombstone is needed.
+     *
+     * @param slot the slot
+     */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (positions[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            // move the entry if its home is not between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                positions[hole] = positions[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        positions[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        keys = new int[capacity];
+        positions = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = mix(caches[i].getDataObjectID()) & mask;
+            while (positions[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = caches[i].getDataObjectID();
+            positions[slot] = i + 1;
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -9,10 +9,13 @@ package org.cloudbus.cloudsim;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.IntIntMap;
 
 /**
  * Cloudlet is an extension to the cloudlet. It stores, despite all the
@@ -210,49 +213,145 @@ public class Cloudlet implements Comparable<Cloudlet> {
      */
     private List<String> requiredFiles = null;   // list of required filenames
 
-    // ATAKAN: Which data will be required in which position of execution.
-    /*private final List<CloudletDataRequest> dataRequests = new LinkedList<>();
+    // ATAKAN: Which data will be required in which position of execution, by request index. The
+    // requests of the same data object are chained, so that each received copy completes the first
+    // pending one.
+    private CloudletDataRequest[] dataRequests = new CloudletDataRequest[4];
+    private int[] nextSameData = new int[4];
+    private int requiredDataCount = 0;
+    private final IntIntMap firstDataRequest = new IntIntMap(-1);
+    private boolean positionalData = false;
+    private String clientId;
+
+    // ATAKAN: The data is required before the execution starts.
+    public void addDataRequest(int dataObjectID) {
+        addDataRequest(dataObjectID, 0);
+    }
 
+    /**
+     * Adds a data object that the cloudlet needs when its execution reaches a
+     * position. The cloudlet runs until that position and waits there for the
+     * data if it has not been received yet.
+     *
+     * @param dataObjectID the data object id
+     * @param cloudletLenghtPos the position, in MI of the cloudlet length
+     * @throws IllegalArgumentException if the position is negative or not
+     * before the completion of the cloudlet
+     */
     public void addDataRequest(int dataObjectID, long cloudletLenghtPos) {
-        if (cloudletLenghtPos > cloudletLength) {
-            throw new IllegalArgumentException("Data request position cannot be after the completion of cloudlet.");
+        if (cloudletLenghtPos < 0 || (cloudletLenghtPos > 0 && cloudletLenghtPos >= cloudletLength)) {
+            throw new IllegalArgumentException("Data request position should be before the completion of cloudlet.");
+        }
+        if (requiredDataCount == dataRequests.length) {
+            dataRequests = Arrays.copyOf(dataRequests, 2 * requiredDataCount);
+            nextSameData = Arrays.copyOf(nextSameData, 2 * requiredDataCount);
+        }
+        int index = requiredDataCount++;
+        dataRequests[index] = new CloudletDataRequest(dataObjectID, cloudletLenghtPos);
+        nextSameData[index] = -1;
+        positionalData |= cloudletLenghtPos > 0;
+        int last = firstDataRequest.get(dataObjectID);
+        if (last < 0) {
+            firstDataRequest.put(dataObjectID, index);
         } else {
-            dataRequests.add(new CloudletDataRequest(dataObjectID, cloudletLenghtPos));
+            while (nextSameData[last] >= 0) {
+                last = nextSameData[last];
+            }
+            nextSameData[last] = index;
         }
-    }*/
-    // ATAKAN: Which data will be required
-    private final ArrayList<Integer> requiredData = new ArrayList<>();
-    private String clientId;
+        missingData++;
+    }
 
-    public void addDataRequest(int dataObjectID) {
-        requiredData.add(dataObjectID);
+    public int getRequiredDataCount() {
+        return requiredDataCount;
     }
 
-    public ArrayList<Integer> getRequiredData() {
-        return requiredData;
+    public int getRequiredData(int index) {
+        return dataRequests[index].getDataObjectID();
     }
 
-    // ATAKAN: Which data has been received
-    private final ArrayList<Integer> receivedData = new ArrayList<>();
+    public long getDataPosition(int index) {
+        return dataRequests[index].getCloudletLenghtPos();
+    }
 
-    public void addDataReceive(int dataObjectID) {
-        receivedData.add(dataObjectID);
+    public boolean isDataRequested(int index) {
+        return dataRequests[index].isRequested();
     }
 
-    public ArrayList<Integer> getReceivedData() {
-        return receivedData;
+    public void setDataRequested(int index) {
+        dataRequests[index].setRequested();
     }
 
-    public boolean allRequiredDataAreReceived() {
-        if (receivedData.size() != requiredData.size()) {
-            return false;
+    // ATAKAN: If some data is required after the execution starts.
+    public boolean hasPositionalData() {
+        return positionalData;
+    }
+
+    /**
+     * Gets the next position where the cloudlet should stop: the position of
+     * data that is requested but not received yet, or the prefetch lead before
+     * the position of data that is not requested yet.
+     *
+     * @param prefetchLead how long before its position a data object is
+     * requested, in MI
+     * @return the position in MI, or Long.MAX_VALUE if all data are received
+     */
+    public long getNextDataPosition(long prefetchLead) {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < requiredDataCount; i++) {
+            if (!receivedData.get(i)) {
+                CloudletDataRequest r = dataRequests[i];
+                long position = r.isRequested() ? r.getCloudletLenghtPos() : Math.max(0, r.getCloudletLenghtPos() - prefetchLead);
+                next = Math.min(next, position);
+            }
         }
-        for (int data : requiredData) {
-            if (!receivedData.contains(data)) {
-                return false;
+        return next;
+    }
+
+    /**
+     * Checks whether the cloudlet misses data to run up to a position.
+     *
+     * @param position the position in MI
+     * @return true, if some data required at or before the position is not
+     * received yet
+     */
+    public boolean isDataMissingBefore(long position) {
+        for (int i = receivedData.nextClearBit(0); i < requiredDataCount; i = receivedData.nextClearBit(i + 1)) {
+            if (dataRequests[i].getCloudletLenghtPos() <= position) {
+                return true;
             }
         }
-        return true;
+        return false;
+    }
+
+    // ATAKAN: Which data has been received, by request index, and how many are still missing.
+    private final BitSet receivedData = new BitSet();
+    private int missingData = 0;
+
+    /**
+     * Records a received data object.
+     *
+     * @param dataObjectID the data object id
+     * @return true, if the data object completes a pending request; false if
+     * it was not requested or all its requests are already completed
+     */
+    public boolean addDataReceive(int dataObjectID) {
+        for (int i = firstDataRequest.get(dataObjectID); i >= 0; i = nextSameData[i]) {
+            if (!receivedData.get(i)) {
+                receivedData.set(i);
+                missingData--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isDataReceived(int index) {
+        return receivedData.get(index);
+    }
+
+    public boolean allRequiredDataAreReceived() {
+        return missingData == 0;
     }
 
     // ATAKAN: The id of the datacenter where the main storage exists.
@@ -11,8 +11,8 @@ package org.cloudbus.cloudsim;
  * Which data will be required in which position of execution.
  */
 class CloudletDataRequest {
-    private int dataObjectID;
-    private long cloudletLenghtPos;
+    private final int dataObjectID;
+    private final long cloudletLenghtPos;
     private boolean requested;
 
     public CloudletDataRequest(int dataObjectID, long cloudletLenghtPos) {
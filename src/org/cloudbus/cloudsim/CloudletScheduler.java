@@ -214,6 +214,39 @@ public abstract class CloudletScheduler {
 	 */
 	public abstract double getCurrentRequestedUtilizationOfBw();
 
+	/**
+	 * Gets the length of a cloudlet executed so far, to compare it with the positions of its data
+	 * requests. This implementation does not track the progress and returns -1, so that a cloudlet
+	 * waits for all its data before it starts.
+	 * 
+	 * @param clId ID of the cloudlet
+	 * @return the executed length in MI, per PE, 0 if the cloudlet is not executing or paused, or
+	 *         -1 if the progress is not tracked
+	 */
+	public long getCloudletFinishedLength(int clId) {
+		return -1;
+	}
+
+	/**
+	 * Gets the length a cloudlet can execute before it reaches its next data position, that is the
+	 * position of data that it has not received yet, or the prefetch lead before the position of
+	 * data that is not requested yet.
+	 * 
+	 * @param rcl the cloudlet
+	 * @param prefetchLead the prefetch lead in MI, 0 for the position of the next missing data
+	 * @return the length in MI, for all PEs, at most the remaining length
+	 * @see Cloudlet#getNextDataPosition(long)
+	 */
+	protected long getLengthToDataPosition(ResCloudlet rcl, long prefetchLead) {
+		long remainingLength = rcl.getRemainingCloudletLength();
+		long position = rcl.getCloudlet().getNextDataPosition(prefetchLead);
+		if (position == Long.MAX_VALUE) {
+			return remainingLength;
+		}
+		long finishedLength = rcl.getCloudlet().getCloudletTotalLength() - remainingLength;
+		return Math.max(0, Math.min(remainingLength, position * rcl.getNumberOfPes() - finishedLength));
+	}
+
 	/**
 	 * Gets the previous time.
 	 * 
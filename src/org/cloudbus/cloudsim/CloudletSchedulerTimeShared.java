@@ -66,7 +66,12 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
                 
 		for (ResCloudlet rcl : getCloudletExecList()) {
                     //Log.printLine(CloudSim.clock()+": REMAINING "+rcl.getRemainingCloudletLength() + " of "+ rcl.getCloudletTotalLength());
-                    rcl.updateCloudletFinishedSoFar((long) (getCapacity(mipsShare) * timeSpam * rcl.getNumberOfPes() * Consts.MILLION));
+                    // ATAKAN: The cloudlet cannot run past the position of data it has not received yet.
+                    long length = (long) (getCapacity(mipsShare) * timeSpam * rcl.getNumberOfPes() * Consts.MILLION);
+                    if (rcl.getCloudlet().hasPositionalData()) {
+                        length = Math.min(length, getLengthToDataPosition(rcl, 0) * Consts.MILLION);
+                    }
+                    rcl.updateCloudletFinishedSoFar(length);
 		}
 
 		if (getCloudletExecList().size() == 0) {
@@ -89,8 +94,9 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 
 		// estimate finish time of cloudlets
 		for (ResCloudlet rcl : getCloudletExecList()) {
+			// ATAKAN: The cloudlet may have to stop for data before it finishes.
 			double estimatedFinishTime = currentTime
-					+ (rcl.getRemainingCloudletLength() / (getCapacity(mipsShare) * rcl.getNumberOfPes()));
+					+ (getLengthToDataPosition(rcl, CloudSim.getPrefetchLead()) / (getCapacity(mipsShare) * rcl.getNumberOfPes()));
 			if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
 				estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
 			}
@@ -279,7 +285,7 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 			// calculate the expected time for cloudlet completion
 			// first: how many PEs do we have?
 
-			double remainingLength = rgl.getRemainingCloudletLength();
+			double remainingLength = getLengthToDataPosition(rgl, CloudSim.getPrefetchLead());
                         //ATAKAN: This was possibly a bug. It is parsed as duration not time in Datacenter.processCloudletResume()
                         //double estimatedFinishTime = CloudSim.clock()	+ (remainingLength / (getCapacity(getCurrentMipsShare()) * rgl.getNumberOfPes()));
 
@@ -369,6 +375,21 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 		return null;
 	}
 
+	@Override
+	public long getCloudletFinishedLength(int cloudletId) {
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			if (rcl.getCloudletId() == cloudletId) {
+				return (rcl.getCloudlet().getCloudletTotalLength() - rcl.getRemainingCloudletLength()) / rcl.getNumberOfPes();
+			}
+		}
+		for (ResCloudlet rcl : getCloudletPausedList()) {
+			if (rcl.getCloudletId() == cloudletId) {
+				return (rcl.getCloudlet().getCloudletTotalLength() - rcl.getRemainingCloudletLength()) / rcl.getNumberOfPes();
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * Get utilization created by all cloudlets.
 	 * 
@@ -6,19 +6,22 @@
  */
 package org.cloudbus.cloudsim;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import org.cloudbus.cloudsim.cache.CachePolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
-
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.util.IntIntMap;
+import org.cloudbus.cloudsim.util.IntLinkedSet;
 
 /**
  * Datacenter class is a CloudResource whose hostList are virtualized. It deals
@@ -69,8 +72,11 @@ public class Datacenter extends SimEntity {
      */
     private double schedulingInterval;
 
-    //ATAKAN: <DataObjectID, DatacenterID> Stores known cache locations.
-    private HashSetValuedHashMap<Integer, Integer> cacheLocations;
+    //ATAKAN: <DataObjectID, DatacenterIDs> Stores known cache locations: the index of the set of each data object.
+    private final IntIntMap cacheLocationIndex = new IntIntMap(-1);
+
+    //ATAKAN: The sets of known cache locations, in the order they became known.
+    private final List<IntLinkedSet> cacheLocations = new ArrayList<>();
 
     private boolean mainStorage;
 
@@ -81,25 +87,50 @@ public class Datacenter extends SimEntity {
     }
 
     //ATAKAN: <DataObjectID> Stores the caches (DataObjectID) that are kept in this datacenter.
-    private HashSet<Cache> caches;
+    private CacheStore caches;
 
-    //ATAKAN: <DataObjectID, CloudSimClock> Last usage times of caches for LRU.
-    private HashMap<Integer, Double> lru;
+    //ATAKAN: Replacement policy of the baseline cache, created on first use.
+    private CachePolicy cachePolicy;
 
-    //ATAKAN: <DatacenterID, Latency> latencies to the known non-neigbour datacenters.
-    private HashMap<Integer, Double> knownDistances;
+    //ATAKAN: <DatacenterID, Latency> latencies to the known non-neigbour datacenters, NaN for unknown ones.
+    private double[] knownDistances = new double[0];
 
-    //ATAKAN: <DataObjectID, NeighbourDatacenterID> Log of requests received from neighbours.
-    private HashSet<Request> requests;
+    //ATAKAN: <DataObjectID, NeighbourDatacenterID> Demand of the requests received from neighbours, created on first use.
+    private DemandTable demand;
 
-    private static HashMap<Integer, String> labelMap = null;
+    //ATAKAN: Reused to read the ids of a set without allocating.
+    private int[] ids;
 
-    public static void setLabelMap(HashMap<Integer, String> labelMap) {
-        Datacenter.labelMap = labelMap;
+    //ATAKAN: Cloudlets that need data after they start, until all their data are received.
+    private final List<Cloudlet> positionalCloudlets = new ArrayList<>();
+
+    /**
+     * The state shared by the datacenters of a simulation, held by its
+     * {@link SimulationContext}.
+     */
+    public static final class State {
+
+        private HashMap<Integer, String> labelMap = null;
+
+        private int cloudletStarted = 0;
+        private int cloudletFinished = 0;
+
+        //ATAKAN: Payloads of the data requests that are received, ready to be reused.
+        private final ArrayDeque<int[]> payloads = new ArrayDeque<>();
+    }
+
+    /**
+     * Gets the datacenter state of the simulation run by the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        return SimulationContext.current().getDatacenters();
     }
 
-    private static int cloudletStarted = 0;
-    private static int cloudletFinished = 0;
+    public static void setLabelMap(HashMap<Integer, String> labelMap) {
+        state().labelMap = labelMap;
+    }
 
     private boolean firstCheckScheduled;
 
@@ -154,11 +185,7 @@ public class Datacenter extends SimEntity {
         // stores id of this class
         getCharacteristics().setId(super.getId());
 
-        cacheLocations = new HashSetValuedHashMap<>();
-        caches = new HashSet<>();
-        lru = new HashMap<>();
-        knownDistances = new HashMap<>();
-        requests = new HashSet<>();
+        caches = new CacheStore();
         mainStorage = false;
         firstCheckScheduled = false;
     }
@@ -223,7 +250,7 @@ public class Datacenter extends SimEntity {
 
             // New Cloudlet arrives
             case CloudSimTags.CLOUDLET_SUBMIT:
-                cloudletStarted++;
+                state().cloudletStarted++;
                 //if(cloudletStarted%1000==0) System.out.println("Cloudlet "+cloudletStarted + " started");
                 processCloudletSubmit(ev, false);
                 break;
@@ -323,6 +350,7 @@ public class Datacenter extends SimEntity {
             case CloudSimTags.VM_DATACENTER_EVENT:
                 updateCloudletProcessing();
                 checkCloudletCompletion();
+                checkDataPositions();
                 break;
 
             case CloudSimTags.REMOTE_DATA_REQUEST:
@@ -346,15 +374,15 @@ public class Datacenter extends SimEntity {
                 break;
 
             case CloudSimTags.ADD_CACHE_LOCATION:
-                knownDistances.put(ev.getSource(), CloudSim.clock() - ev.creationTime());
+                setKnownDistance(ev.getSource(), CloudSim.clock() - ev.creationTime());
                 if (ev.getSource() != getId()) {
-                    cacheLocations.put((int) ev.getData(), ev.getSource());
+                    addCacheLocation((int) ev.getData(), ev.getSource());
                 }
                 break;
 
             case CloudSimTags.REMOVE_CACHE_LOCATION:
-                knownDistances.put(ev.getSource(), CloudSim.clock() - ev.creationTime());
-                cacheLocations.removeMapping((int) ev.getData(), ev.getSource());
+                setKnownDistance(ev.getSource(), CloudSim.clock() - ev.creationTime());
+                removeCacheLocation((int) ev.getData(), ev.getSource());
                 break;
 
             // other unknown tags are processed by this method
@@ -833,41 +861,23 @@ public class Datacenter extends SimEntity {
             double estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
             // if this cloudlet is in the exec queue
             if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
-                //ATAKAN: Pause cloudlet and request data 
-                ArrayList<Integer> requiredData = cl.getRequiredData();
-                boolean requested = false;
-                for (int dataObjectID : requiredData) {
-                    boolean found = false;
-                    for (Cache c : caches) {
-                        if (c.dataObjectID == dataObjectID) {
-                            if (c.isLocalCache() && !cl.getClient().equals(c.getCloudlet().getClient())) {
-                                continue;
-                            }
-                            cl.addDataReceive(dataObjectID);
-                            found = true;
-                            Log.printLine(CloudSim.clock() + ": " + getName() + ": Data object #" + c.dataObjectID + " is found locally ");
-                            if (mainStorage) {
-                                Log.dataFoundInLocalMainDC();
-                            } else {
-                                Log.dataFoundInLocalCache();
-                            }
-                            break;
-                        }
-                    }
-                    if (!found) {
-                        requested = true;
-                        if (getId() != cl.getMainDc()) {
-                            cacheLocations.put(dataObjectID, cl.getMainDc());
-                        }
-                        sendDataRequest(cl.getCloudletId(), cl.getUserId(), cl.getVmId(), dataObjectID);
-                    }
-                }
-                if (requested) {
+                //ATAKAN: Request the data needed within the prefetch lead and pause cloudlet if it cannot start without waiting.
+                long lead = CloudSim.getPrefetchLead();
+                long position = getReachedPosition(scheduler, cl);
+                requestData(cl, position, lead);
+                if (cl.isDataMissingBefore(position)) {
                     processCloudletPause(cl.getCloudletId(), userId, vmId, false);
                 } else {
+                    long next = cl.getNextDataPosition(lead);
+                    if (next != Long.MAX_VALUE) {
+                        send(getId(), fileTransferTime + estimatedFinishTime * next / cl.getCloudletLength(), CloudSimTags.VM_DATACENTER_EVENT);
+                    }
                     estimatedFinishTime += fileTransferTime;
                     send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT); //Why not schedule?
                 }
+                if (cl.hasPositionalData()) {
+                    positionalCloudlets.add(cl);
+                }
             }
 
             if (ack) {
@@ -891,44 +901,108 @@ public class Datacenter extends SimEntity {
         checkCloudletCompletion();
     }
 
+    // ATAKAN: The position reached by a cloudlet, or the end if its scheduler does not track the progress.
+    private static long getReachedPosition(CloudletScheduler scheduler, Cloudlet cl) {
+        long finishedLength = scheduler.getCloudletFinishedLength(cl.getCloudletId());
+        return finishedLength < 0 ? Long.MAX_VALUE : finishedLength;
+    }
+
+    // ATAKAN: Request the data of a cloudlet needed within the prefetch lead of a position, unless it is found locally.
+    private void requestData(Cloudlet cl, long position, long lead) {
+        for (int i = 0; i < cl.getRequiredDataCount(); i++) {
+            if (cl.isDataRequested(i) || cl.getDataPosition(i) - lead > position) {
+                continue;
+            }
+            cl.setDataRequested(i);
+            int dataObjectID = cl.getRequiredData(i);
+            Cache c = caches.get(dataObjectID);
+            if (c != null && !(c.isLocalCache() && !cl.getClient().equals(c.getCloudlet().getClient()))) {
+                cl.addDataReceive(dataObjectID);
+                if (CloudSim.isCacheEnabled()) {
+                    getCachePolicy().hit(dataObjectID);
+                }
+                if (!Log.isDisabled()) {
+                    Log.printLine(CloudSim.clock() + ": " + getName() + ": Data object #" + c.dataObjectID + " is found locally ");
+                }
+                if (mainStorage) {
+                    Log.dataFoundInLocalMainDC();
+                } else {
+                    Log.dataFoundInLocalCache();
+                }
+            } else {
+                if (getId() != cl.getMainDc()) {
+                    addCacheLocation(dataObjectID, cl.getMainDc());
+                }
+                sendDataRequest(cl.getCloudletId(), cl.getUserId(), cl.getVmId(), dataObjectID);
+            }
+        }
+    }
+
+    // ATAKAN: Request the data that the running cloudlets will need within the prefetch lead,
+    // and pause the ones that reached the position of data not received yet.
+    private void checkDataPositions() {
+        if (positionalCloudlets.isEmpty()) {
+            return;
+        }
+        long lead = CloudSim.getPrefetchLead();
+        Iterator<Cloudlet> iterator = positionalCloudlets.iterator();
+        while (iterator.hasNext()) {
+            Cloudlet cl = iterator.next();
+            if (cl.isFinished() || cl.allRequiredDataAreReceived()) {
+                iterator.remove();
+            } else if (cl.getCloudletStatus() == Cloudlet.INEXEC) {
+                CloudletScheduler scheduler = getVmAllocationPolicy().getHost(cl.getVmId(), cl.getUserId())
+                        .getVm(cl.getVmId(), cl.getUserId()).getCloudletScheduler();
+                long position = getReachedPosition(scheduler, cl);
+                requestData(cl, position, lead);
+                if (cl.isDataMissingBefore(position)) {
+                    processCloudletPause(cl.getCloudletId(), cl.getUserId(), cl.getVmId(), false);
+                }
+            }
+        }
+    }
+
+    // ATAKAN: The payload of a data request is {requesting DC, cloudlet, user, vm, data object, length}.
+    // The same array travels with the request, its not found answers, its retries and the returned data,
+    // and goes back to the pool when the data is received.
     private void sendDataRequest(int cloudletId, int userId, int vmId, int dataObjectID) {
-        int[] data = new int[5];
+        int[] data = state().payloads.poll();
+        if (null == data) {
+            data = new int[6];
+        }
         data[0] = getId();
         data[1] = cloudletId;
         data[2] = userId;
         data[3] = vmId;
         data[4] = dataObjectID;
+        data[5] = 0;
         //dataSourceId = dataSourceId < 0 ? storageId : dataSourceId;
-        sendNow(getDataCacheId(dataObjectID), CloudSimTags.REMOTE_DATA_REQUEST, data);
+        sendDataRequest(data);
+    }
+
+    private void sendDataRequest(int[] data) {
+        sendNow(getDataCacheId(data[4]), CloudSimTags.REMOTE_DATA_REQUEST, data);
     }
 
     // ATAKAN: Answer if data is here.
     private void processDataRequest(SimEvent ev) {
-        knownDistances.put(ev.getSource(), CloudSim.clock() - ev.creationTime());
+        setKnownDistance(ev.getSource(), CloudSim.clock() - ev.creationTime());
 
         int[] data = (int[]) ev.getData();
 
         boolean found = false; //Check if cache is actually here
         int length = 0;
-        if (!found) {
-            for (Cache c : caches) {
-                if (c.dataObjectID == data[4]) {
-                    found = true;
-                    length = c.length;
-                    break;
-                }
-            }
+        Cache c = caches.get(data[4]);
+        if (c != null) {
+            found = true;
+            length = c.length;
         }
         if (found) {
-            int[] updatedData = new int[data.length + 1];
-            for (int i = 0; i < data.length; i++) {
-                updatedData[i] = data[i];
-            }
-            updatedData[updatedData.length - 1] = length;
+            data[5] = length;
             Log.addLatency(CloudSimTags.REMOTE_DATA_RETURN, CloudSim.clock() - ev.creationTime());
             Log.addBandwidthCost(getId(), data[0], length);
-            send(data[0], length / NetworkTopology.getBw(), CloudSimTags.REMOTE_DATA_RETURN, updatedData);
-            requests.add(new Request(ev.creationTime(), data[0], getId(), data[4], length));
+            send(data[0], length / NetworkTopology.getBw(), CloudSimTags.REMOTE_DATA_RETURN, data);
+            getDemandTable().add(data[4], NetworkTopology.getSourceNeighbour(data[0], getId()), data[0]);
             if (mainStorage) {
                 Log.dataReturnedFromMainDC();
             } else {
@@ -941,125 +1015,165 @@ public class Datacenter extends SimEntity {
         }
     }
 
-    // ATAKAN: Resume the cloudlet after all data are received.
+    // ATAKAN: Resume the cloudlet after all data needed up to its position are received.
     private void processDataReturn(SimEvent ev) {
-        knownDistances.put(ev.getSource(), CloudSim.clock() - ev.creationTime());
+        setKnownDistance(ev.getSource(), CloudSim.clock() - ev.creationTime());
         int[] data = (int[]) ev.getData();
         //System.out.println(getId() + ": " + data[4] + " is received.");
-        Cloudlet cl = getVmAllocationPolicy().getHost(data[3], data[2]).getVm(data[3], data[2]).getCloudletScheduler().getCloudlet(data[1]);
-        cl.addDataReceive(data[4]);
-        if (cl.allRequiredDataAreReceived()) {
-            //System.out.println(getId() + ": " + "All received.");
-            processCloudletResume(data[1], data[2], data[3], false);
+        CloudletScheduler scheduler = getVmAllocationPolicy().getHost(data[3], data[2]).getVm(data[3], data[2]).getCloudletScheduler();
+        Cloudlet cl = scheduler.getCloudlet(data[1]);
+        if (cl.addDataReceive(data[4]) && cl.getCloudletStatus() == Cloudlet.PAUSED) {
+            long position = getReachedPosition(scheduler, cl);
+            requestData(cl, position, CloudSim.getPrefetchLead());
+            if (!cl.isDataMissingBefore(position)) {
+                //System.out.println(getId() + ": " + "All received.");
+                processCloudletResume(data[1], data[2], data[3], false);
+            }
+        }
+        if (!Log.isDisabled()) {
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": Data object #" + data[4] + " is received from " + state().labelMap.get(ev.getSource()));
         }
-        Log.printLine(CloudSim.clock() + ": " + getName() + ": Data object #" + data[4] + " is received from " + labelMap.get(ev.getSource()));
 
         if (CloudSim.isCacheEnabled()) {
             int id = data[4];
             int length = data[5];
-            if (caches.add(new Cache(id, length, 0, cl))) {
-                Log.cacheStart(getId(), id);
-                Log.creation();
-            }
-            lru.put(id, CloudSim.clock());
-            while (caches.size() > CloudSim.getCacheLength()) {
-                double lruTime = Double.MAX_VALUE;
-                Cache lruCache = null;
-                for (Cache c : caches) {
-                    double time = lru.get(c.getDataObjectID());
-                    if (time < lruTime) {
-                        lruTime = time;
-                        lruCache = c;
+            CachePolicy policy = getCachePolicy();
+            if (caches.contains(id)) {
+                policy.hit(id);
+            } else if (policy.admit(id, length)) {
+                while (policy.isFull(length)) {
+                    Cache evicted = caches.remove(policy.evict());
+                    if (null == evicted) {
+                        throw new RuntimeException("Evicted cache is already removed");
                     }
-                }
-                if (null == lruCache) {
-                    throw new RuntimeException("LRU cache is not found");
-                } else if (caches.remove(lruCache)) {
-                    Log.cacheEnd(getId(), lruCache.getDataObjectID(), length);
+                    Log.cacheEnd(getId(), evicted.getDataObjectID(), evicted.getLength());
                     Log.removal();
-                    lru.remove(lruCache.getDataObjectID());
-                } else {
-                    throw new RuntimeException("LRU cache is already removed");
                 }
+                caches.add(new Cache(id, length, 0, cl));
+                policy.insert(id, length);
+                Log.cacheStart(getId(), id);
+                Log.creation();
             }
         }
+        state().payloads.push(data);
+    }
+
+    private CachePolicy getCachePolicy() {
+        if (null == cachePolicy) {
+            cachePolicy = CloudSim.getCachePolicy().create(CloudSim.getCacheLength(), CloudSim.getCacheBytes());
+        }
+        return cachePolicy;
     }
 
     private void processDataNotFound(SimEvent ev) {
-        knownDistances.put(ev.getSource(), CloudSim.clock() - ev.creationTime());
+        setKnownDistance(ev.getSource(), CloudSim.clock() - ev.creationTime());
         int[] data = (int[]) ev.getData();
         int source = ev.getSource();
-        cacheLocations.removeMapping(data[4], source);
-        sendDataRequest(data[1], data[2], data[3], data[4]);
+        removeCacheLocation(data[4], source);
+        sendDataRequest(data);
     }
 
     private int getDataCacheId(int dataObjectID) {
         double min = Double.MAX_VALUE;
         int minId = -1;
-        Set<Integer> locs = cacheLocations.get(dataObjectID);
-        if (cacheLocations.containsKey(dataObjectID)) {
-            for (int loc : locs) {
-                if (knownDistances.containsKey(loc) && knownDistances.get(loc) < min) {
-                    min = knownDistances.get(loc);
-                    minId = loc;
-                }
-            }
-            if (minId > 0) {
-                return minId;
+        int index = cacheLocationIndex.get(dataObjectID);
+        if (index < 0 || cacheLocations.get(index).isEmpty()) {
+            throw new NoSuchElementException("No location is known for data object #" + dataObjectID);
+        }
+        IntLinkedSet locs = cacheLocations.get(index);
+        ids = locs.toArray(ids);
+        for (int i = 0, count = locs.size(); i < count; i++) {
+            int loc = ids[i];
+            // false for the unknown distances, which are NaN
+            if (loc < knownDistances.length && knownDistances[loc] < min) {
+                min = knownDistances[loc];
+                minId = loc;
             }
         }
-        return locs.iterator().next();
+        if (minId > 0) {
+            return minId;
+        }
+        return locs.first();
+    }
+
+    private void addCacheLocation(int dataObjectID, int dcId) {
+        int index = cacheLocationIndex.get(dataObjectID);
+        if (index < 0) {
+            index = cacheLocations.size();
+            cacheLocations.add(new IntLinkedSet());
+            cacheLocationIndex.put(dataObjectID, index);
+        }
+        cacheLocations.get(index).addLast(dcId, 0);
+    }
+
+    private void removeCacheLocation(int dataObjectID, int dcId) {
+        int index = cacheLocationIndex.get(dataObjectID);
+        if (index >= 0) {
+            cacheLocations.get(index).remove(dcId);
+        }
+    }
+
+    private void setKnownDistance(int dcId, double distance) {
+        if (dcId >= knownDistances.length) {
+            int length = knownDistances.length;
+            knownDistances = Arrays.copyOf(knownDistances, Math.max(dcId + 1, 2 * length));
+            Arrays.fill(knownDistances, length, knownDistances.length, Double.NaN);
+        }
+        knownDistances[dcId] = distance;
     }
 
     // ATAKAN: check for cache operation conditions and initiate the selected operation.
     private void checkCacheConditions() {
         if (!caches.isEmpty()) {
             Log.printLine(CloudSim.clock() + ": _____" + getName());
-            ArrayList<Integer> neighbours = NetworkTopology.getNeighbours(getId());
+            int neighbourCount = NetworkTopology.getNeighbourCount(getId());
             if (mainStorage) {
                 for (Cache c : caches) {
                     addRecentRequestors(c);
-                    for (int n : neighbours) {
-                        double neighbourCost = CloudSim.storageCosts.get(n);
+                    for (int i = 0; i < neighbourCount; i++) {
+                        int n = NetworkTopology.getNeighbour(getId(), i);
+                        double neighbourCost = CloudSim.getStorageCosts().get(n);
                         double neighbourLatency = NetworkTopology.getDelay(getId(), n);
-                        int neighbourDemand = getDemand(c.dataObjectID, n);
+                        int neighbourDemand = getDemandTable().getDemand(c.dataObjectID, n);
                         if (neighbourDemand * CloudSim.getAggression() * neighbourLatency > neighbourCost) { //Create Decision
                             send(n, c.length / NetworkTopology.getBw(), CloudSimTags.CREATE_CACHE, new Cache(c.dataObjectID, c.length, neighbourDemand));
-                            Log.printLine(CloudSim.clock() + ": +" + getName() + ": Create a new cache for data object #" + c.getDataObjectID() + " in " + labelMap.get(n));
+                            Log.printLine(CloudSim.clock() + ": +" + getName() + ": Create a new cache for data object #" + c.getDataObjectID() + " in " + state().labelMap.get(n));
                             Log.creation();
                         }
                     }
                 }
             } else {
+                int[] neighbourDemands = new int[neighbourCount];
                 for (Cache c : caches) {
                     addRecentRequestors(c);
-                    double localCost = CloudSim.storageCosts.get(getId());
+                    double localCost = CloudSim.getStorageCosts().get(getId());
                     double allNeighboursDemand = 0;
-                    for (int n : neighbours) {
-                        double neighbourCost = CloudSim.storageCosts.get(n);
+                    int totalDemand = 0;
+                    for (int i = 0; i < neighbourDemands.length; i++) {
+                        neighbourDemands[i] = getDemandTable().getDemand(c.dataObjectID, NetworkTopology.getNeighbour(getId(), i));
+                        totalDemand += neighbourDemands[i];
+                    }
+                    for (int i = 0; i < neighbourDemands.length; i++) {
+                        int n = NetworkTopology.getNeighbour(getId(), i);
+                        double neighbourCost = CloudSim.getStorageCosts().get(n);
 
                         double neighbourLatency = NetworkTopology.getDelay(getId(), n);
-                        int neighbourDemand = getDemand(c.dataObjectID, n);
+                        int neighbourDemand = neighbourDemands[i];
                         allNeighboursDemand += neighbourDemand;
                         if (neighbourDemand == 0) {
                             continue;
                         }
-                        int otherNeighboursDemand = 0;
-                        for (int an : neighbours) {
-                            if (an != n) {
-                                otherNeighboursDemand += getDemand(c.dataObjectID, an);
-                            }
-                        }
+                        int otherNeighboursDemand = totalDemand - neighbourDemand;
 
                         double transferDelay = c.length / NetworkTopology.getBw();
                         if (neighbourDemand * CloudSim.getAggression() * neighbourLatency > neighbourCost) { //Duplicate Decision
-                            Log.printLine(CloudSim.clock() + ": +" + getName() + ": Duplicate cache for data object #" + c.getDataObjectID() + " to " + labelMap.get(n));
+                            Log.printLine(CloudSim.clock() + ": +" + getName() + ": Duplicate cache for data object #" + c.getDataObjectID() + " to " + state().labelMap.get(n));
                             send(n, transferDelay, CloudSimTags.CREATE_CACHE, new Cache(c.dataObjectID, c.length, neighbourDemand));
                             Log.duplication();
                             break;
                         }
                         if ((neighbourDemand - otherNeighboursDemand) * CloudSim.getAggression() * neighbourLatency > neighbourCost - localCost) { //Migrate Decision
-                            Log.printLine(CloudSim.clock() + ": +-" + getName() + ": Migrate cache for data object #" + c.getDataObjectID() + " to " + labelMap.get(n));
+                            Log.printLine(CloudSim.clock() + ": +-" + getName() + ": Migrate cache for data object #" + c.getDataObjectID() + " to " + state().labelMap.get(n));
                             schedule(getId(), NetworkTopology.getDelay(getId(), n) + transferDelay, CloudSimTags.REMOVE_CACHE, c); //Cache will stay here until create message is delivered.
                             send(n, transferDelay, CloudSimTags.CREATE_CACHE, new Cache(c.dataObjectID, c.length, neighbourDemand));
                             Log.migration();
@@ -1074,33 +1188,29 @@ public class Datacenter extends SimEntity {
                 }
             }
         }
-        // Clear log for the current interval and schedule the next check
-        requests.clear();
+        // End the demand of the current interval and schedule the next check
+        getDemandTable().roll();
         send(getId(), CloudSim.getCacheQuantum(), CloudSimTags.CHECK_DEMAND_FOR_CACHES);
     }
 
-    private void addRecentRequestors(Cache c) {
-        c.recentRequestors.clear();
-        for (Request r : requests) {
-            if (r.dataObjectID == c.dataObjectID) {
-                c.addRequestor(r.originalSource);
-            }
+    private DemandTable getDemandTable() {
+        if (null == demand) {
+            demand = new DemandTable(CloudSim.getDemandWindow(), CloudSim.getDemandDecay());
         }
+        return demand;
     }
 
-    private int getDemand(int dataObjectId, int neighbourId) {
-        int demand = 0;
-        for (Request r : requests) {
-            if (r.dataObjectID == dataObjectId && r.neighbourSource == neighbourId) {
-                demand++;
-            }
+    private void addRecentRequestors(Cache c) {
+        c.recentRequestors.clear();
+        IntLinkedSet requestors = getDemandTable().getRequestors(c.dataObjectID);
+        if (requestors != null) {
+            c.recentRequestors.addAll(requestors);
         }
-        return demand;// * CloudSim.getAggression() * (neighbourLatency + latencyOffset);
     }
 
     //ATAKAN: Create a new cache in this location
     private void processCacheCreation(SimEvent ev) {
-        knownDistances.put(ev.getSource(), CloudSim.clock() - ev.creationTime());
+        setKnownDistance(ev.getSource(), CloudSim.clock() - ev.creationTime());
         Cache c = (Cache) ev.getData();
 
         if (caches.add(c)) {
@@ -1126,11 +1236,14 @@ public class Datacenter extends SimEntity {
 
     private void notifyOtherDCs(int message, Cache c) {
         int dataObjectID = c.getDataObjectID();
-        HashSet<Integer> dcIds = c.getRecentRequestors();
-        dcIds.addAll(NetworkTopology.getNeighbours(getId()));
+        IntLinkedSet dcIds = c.getRecentRequestors();
+        for (int i = 0, count = NetworkTopology.getNeighbourCount(getId()); i < count; i++) {
+            dcIds.addLast(NetworkTopology.getNeighbour(getId(), i), 0);
+        }
 
-        for (int i : dcIds) {
-            sendNow(i, message, dataObjectID);
+        ids = dcIds.toArray(ids);
+        for (int i = 0, count = dcIds.size(); i < count; i++) {
+            sendNow(ids[i], message, dataObjectID);
         }
     }
 
@@ -1293,7 +1406,7 @@ public class Datacenter extends SimEntity {
                     Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
                     if (cl != null) {
                         sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
-                        cloudletFinished++;
+                        int cloudletFinished = ++state().cloudletFinished;
                         if (cloudletFinished % 10000 == 0) {
                             System.out.println("Cloudlet " + cloudletFinished + " finished at " + CloudSim.clock());
                         }
@@ -1588,7 +1701,7 @@ public class Datacenter extends SimEntity {
         private final int length;
         private Cloudlet c;
 
-        private HashSet<Integer> recentRequestors;
+        private final IntLinkedSet recentRequestors;
         private int originalDemand;
 
         public Cache(int dataObjectID, int length, int originalDemand) {
@@ -1596,7 +1709,7 @@ public class Datacenter extends SimEntity {
             this.length = length;
             this.originalDemand = originalDemand;
             c = null;
-            recentRequestors = new HashSet<>();
+            recentRequestors = new IntLinkedSet();
         }
 
         public Cache(int dataObjectID, int length, int originalDemand, Cloudlet c) {
@@ -1604,12 +1717,12 @@ public class Datacenter extends SimEntity {
             this.c = c;
         }
 
-        public HashSet<Integer> getRecentRequestors() {
+        public IntLinkedSet getRecentRequestors() {
             return recentRequestors;
         }
 
         public void addRequestor(int r) {
-            recentRequestors.add(r);
+            recentRequestors.addLast(r, 0);
         }
 
         public boolean isLocalCache() {
@@ -1653,25 +1766,4 @@ public class Datacenter extends SimEntity {
 
     }
 
-    private static class Request {
-
-        private final double time;
-        private final double latency;
-        private final int originalSource;
-        private final int neighbourSource;
-        private final int destination;
-        private final int dataObjectID;
-        private final int length;
-
-        public Request(double creationTime, int source, int destination, int dataObjectID, int length) {
-            time = CloudSim.clock();
-            this.latency = time - creationTime;
-            this.originalSource = source;
-            neighbourSource = NetworkTopology.getSourceNeighbour(source, destination);
-            this.destination = destination;
-            this.dataObjectID = dataObjectID;
-            this.length = length;
-        }
-    }
-
 }
@@ -0,0 +1,424 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.util.IntIntMap;
+import org.cloudbus.cloudsim.util.IntLinkedSet;
+
+/**
+ * The requests served by a datacenter, counted as they are served. The number
+ * of requests per (data object, neighbour) pair is kept in an open addressing
+ * table of primitive arrays, and the datacenters that sent requests for a data
+ * object are kept in one primitive set per data object, so the cache check
+ * reads the demand of a pair in constant time instead of scanning every
+ * request, and recording a request boxes nothing. The sets of the data objects
+ * no longer in demand are cleared and kept for the next ones.
+ * <p>
+ * The demand is estimated in one of three ways, {@link #roll()} being called at
+ * the end of each cache quantum:
+ * <ul>
+ * <li>tumbling window: the requests of the current quantum, forgotten at its
+ * end;
+ * <li>sliding window: the average number of requests per quantum over the last
+ * quanta, kept in a ring of one counter per quantum and pair;
+ * <li>exponential decay: the exponentially weighted average of the number of
+ * requests per quantum, the past being multiplied by a decay factor at the end
+ * of each quantum.
+ * </ul>
+ * The pairs whose demand falls to zero are dropped, so the memory depends on
+ * the number of pairs recently requested, whatever the length of the quantum.
+ *
+ * @author Atakan
+ */
+final class DemandTable {
+
+    /**
+     * The initial capacity of the table, a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The decayed demand below which a pair is dropped.
+     */
+    private static final double MIN_DECAYED_DEMAND = 0.01;
+
+    /**
+     * The number of quanta of the sliding window, 1 for a tumbling window.
+     */
+    private final int windows;
+
+    /**
+     * The share of the past demand kept at the end of a quantum, 0 for no
+     * decay.
+     */
+    private final double decay;
+
+    /**
+     * The data object ids of the slots.
+     */
+    private int[] dataObjectIDs;
+
+    /**
+     * The neighbour datacenter ids of the slots.
+     */
+    private int[] neighbourIDs;
+
+    /**
+     * Whether the slots are used.
+     */
+    private boolean[] used;
+
+    /**
+     * The requests of the slots: the count of the window or the decayed count.
+     */
+    private double[] totals;
+
+    /**
+     * The counts of the quanta of the sliding window, <tt>windows</tt> per
+     * slot, or <tt>null</tt> for a tumbling window or a decay.
+     */
+    private int[] ring;
+
+    /**
+     * The quantum of the ring being counted.
+     */
+    private int cursor = 0;
+
+    /**
+     * The number of used slots.
+     */
+    private int size = 0;
+
+    /**
+     * The data objects still in demand, marked by each roll.
+     */
+    private final IntIntMap alive = new IntIntMap(0);
+
+    /**
+     * The index in <tt>requestorSets</tt> of the set of each data object.
+     */
+    private final IntIntMap requestorSetOf = new IntIntMap(-1);
+
+    /**
+     * The datacenters that sent the requests, one set per data object. The
+     * first <tt>requestorSetCount</tt> sets are in use, the others are empty
+     * and kept for reuse.
+     */
+    private IntLinkedSet[] requestorSets = new IntLinkedSet[0];
+
+    /**
+     * The data object ids of the sets in use.
+     */
+    private int[] requestorObjects = new int[0];
+
+    /**
+     * The number of sets in use.
+     */
+    private int requestorSetCount = 0;
+
+    /**
+     * Creates a demand table.
+     *
+     * @param windows the number of quanta of the sliding window, 1 for a
+     * tumbling window
+     * @param decay the share of the past demand kept at the end of a quantum,
+     * 0 for no decay
+     * @throws IllegalArgumentException if both a sliding window and a decay are
+     * given, or if one of them is out of range
+     */
+    public DemandTable(int windows, double decay) {
+        if (windows < 1 || decay < 0 || decay >= 1 || (windows > 1 && decay > 0)) {
+            throw new IllegalArgumentException("Invalid demand estimation: " + windows + " windows, " + decay + " decay");
+        }
+        this.windows = windows;
+        this.decay = decay;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a demand table with a tumbling window.
+     */
+    public DemandTable() {
+        this(1, 0);
+    }
+
+    /**
+     * Records a served request.
+     *
+     * @param dataObjectID the requested data object
+     * @param neighbourID the neighbour the request came through
+     * @param requestorID the datacenter that sent the request
+     */
+    public void add(int dataObjectID, int neighbourID, int requestorID) {
+        int slot = slotOf(dataObjectID, neighbourID);
+        if (!used[slot]) {
+            dataObjectIDs[slot] = dataObjectID;
+            neighbourIDs[slot] = neighbourID;
+            used[slot] = true;
+            if (2 * ++size > used.length) {
+                rehash(used.length * 2);
+                slot = slotOf(dataObjectID, neighbourID);
+            }
+        }
+        totals[slot]++;
+        if (ring != null) {
+            ring[slot * windows + cursor]++;
+        }
+
+        int index = requestorSetOf.get(dataObjectID);
+        if (index < 0) {
+            index = addRequestorSet(dataObjectID);
+        }
+        requestorSets[index].addLast(requestorID, 0);
+    }
+
+    /**
+     * Gets the estimated number of requests per quantum for a data object that
+     * came through a neighbour.
+     *
+     * @param dataObjectID the data object id
+     * @param neighbourID the neighbour datacenter id
+     * @return the number of requests
+     */
+    public int getDemand(int dataObjectID, int neighbourID) {
+        int slot = slotOf(dataObjectID, neighbourID);
+        if (!used[slot]) {
+            return 0;
+        }
+        if (decay > 0) {
+            return (int) Math.round(totals[slot] * (1 - decay));
+        }
+        if (windows > 1) {
+            return (int) Math.round(totals[slot] / windows);
+        }
+        return (int) totals[slot];
+    }
+
+    /**
+     * Gets the datacenters that sent requests for a data object that is still
+     * in demand, in the order of their first request. The set belongs to the
+     * table: it must not be modified, and is only valid until the next
+     * {@link #roll()}.
+     *
+     * @param dataObjectID the data object id
+     * @return the datacenter ids, or <tt>null</tt> if there were no requests
+     */
+    public IntLinkedSet getRequestors(int dataObjectID) {
+        int index = requestorSetOf.get(dataObjectID);
+        return index < 0 ? null : requestorSets[index];
+    }
+
+    /**
+     * Ends the current quantum: forgets its requests with a tumbling window,
+     * forgets the oldest quantum with a sliding window or decays the demand.
+     */
+    public void roll() {
+        if (windows == 1 && decay == 0) {
+            clear();
+            return;
+        }
+        if (ring != null) {
+            cursor = (cursor + 1) % windows;
+        }
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                if (ring != null) {
+                    totals[slot] -= ring[slot * windows + cursor];
+                    ring[slot * windows + cursor] = 0;
+                } else {
+                    totals[slot] *= decay;
+                }
+            }
+        }
+        // a deletion may shift a pair not seen yet into the slot, or one seen
+        // already past it, which is then marked twice
+        alive.clear();
+        for (int slot = 0; slot < used.length; slot++) {
+            while (used[slot] && totals[slot] < MIN_DECAYED_DEMAND) {
+                deleteSlot(slot);
+            }
+            if (used[slot]) {
+                alive.put(dataObjectIDs[slot], 1);
+            }
+        }
+        int capacity = capacityFor(size);
+        if (capacity != used.length) {
+            rehash(capacity);
+        }
+
+        // backwards, as a removed set is replaced by the last one
+        for (int index = requestorSetCount - 1; index >= 0; index--) {
+            if (!alive.containsKey(requestorObjects[index])) {
+                removeRequestorSet(index);
+            }
+        }
+    }
+
+    /**
+     * Forgets all the requests.
+     */
+    public void clear() {
+        if (size > 0) {
+            int capacity = capacityFor(0);
+            if (used.length == capacity) {
+                Arrays.fill(used, false);
+                Arrays.fill(totals, 0);
+                if (ring != null) {
+                    Arrays.fill(ring, 0);
+                }
+            } else {
+                allocate(capacity);
+            }
+            size = 0;
+        }
+        for (int index = 0; index < requestorSetCount; index++) {
+            requestorSets[index].clear();
+        }
+        requestorSetOf.clear();
+        requestorSetCount = 0;
+    }
+
+    /**
+     * Finds the slot of a pair or the empty slot where it would be inserted.
+     *
+     * @param dataObjectID the data object id
+     * @param neighbourID the neighbour datacenter id
+     * @return the slot
+     */
+    private int slotOf(int dataObjectID, int neighbourID) {
+        int mask = used.length - 1;
+        int slot = mix(dataObjectID, neighbourID) & mask;
+        while (used[slot] && (dataObjectIDs[slot] != dataObjectID || neighbourIDs[slot] != neighbourID)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot, shifting back the pairs of the same probe sequence so
+     * that no tombstone nor rehash is needed.
+     *
+     * @param slot the slot
+     */
+    private void deleteSlot(int slot) {
+        int mask = used.length - 1;
+        int hole = slot;
+        for (int probe = (hole + 1) & mask; used[probe]; probe = (probe + 1) & mask) {
+            int home = mix(dataObjectIDs[probe], neighbourIDs[probe]) & mask;
+            // move the pair if its home is not between the hole and itself
+            if (((probe - home) & mask) >= ((probe - hole) & mask)) {
+                dataObjectIDs[hole] = dataObjectIDs[probe];
+                neighbourIDs[hole] = neighbourIDs[probe];
+                totals[hole] = totals[probe];
+                if (ring != null) {
+                    System.arraycopy(ring, probe * windows, ring, hole * windows, windows);
+                }
+                hole = probe;
+            }
+        }
+        used[hole] = false;
+        totals[hole] = 0;
+        if (ring != null) {
+            Arrays.fill(ring, hole * windows, (hole + 1) * windows, 0);
+        }
+        size--;
+    }
+
+    /**
+     * Gives a data object a set of requestors, reusing an unused set if there
+     * is one.
+     *
+     * @param dataObjectID the data object id
+     * @return the index of the set
+     */
+    private int addRequestorSet(int dataObjectID) {
+        if (requestorSetCount == requestorSets.length) {
+            int capacity = Math.max(16, 2 * requestorSets.length);
+            requestorSets = Arrays.copyOf(requestorSets, capacity);
+            requestorObjects = Arrays.copyOf(requestorObjects, capacity);
+        }
+        int index = requestorSetCount++;
+        if (requestorSets[index] == null) {
+            requestorSets[index] = new IntLinkedSet();
+        }
+        requestorObjects[index] = dataObjectID;
+        requestorSetOf.put(dataObjectID, index);
+        return index;
+    }
+
+    /**
+     * Clears the set of requestors at an index and keeps it for reuse, moving
+     * the last set in use to its index.
+     *
+     * @param index the index of the set
+     */
+    private void removeRequestorSet(int index) {
+        IntLinkedSet set = requestorSets[index];
+        set.clear();
+        requestorSetOf.remove(requestorObjects[index]);
+        int last = --requestorSetCount;
+        if (index != last) {
+            requestorSets[index] = requestorSets[last];
+            requestorObjects[index] = requestorObjects[last];
+            requestorSets[last] = set;
+            requestorSetOf.put(requestorObjects[index], index);
+        }
+    }
+
+    private void allocate(int capacity) {
+        dataObjectIDs = new int[capacity];
+        neighbourIDs = new int[capacity];
+        used = new boolean[capacity];
+        totals = new double[capacity];
+        ring = windows > 1 ? new int[capacity * windows] : null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldDataObjectIDs = dataObjectIDs;
+        int[] oldNeighbourIDs = neighbourIDs;
+        boolean[] oldUsed = used;
+        double[] oldTotals = totals;
+        int[] oldRing = ring;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldDataObjectIDs[i], oldNeighbourIDs[i]);
+                dataObjectIDs[slot] = oldDataObjectIDs[i];
+                neighbourIDs[slot] = oldNeighbourIDs[i];
+                used[slot] = true;
+                totals[slot] = oldTotals[i];
+                if (ring != null) {
+                    System.arraycopy(oldRing, i * windows, ring, slot * windows, windows);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the capacity of a table holding a number of pairs at most a
+     * quarter full, so that it may double before it grows.
+     *
+     * @param pairs the number of pairs
+     * @return the capacity
+     */
+    private static int capacityFor(int pairs) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 4 * pairs) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static int mix(int dataObjectID, int neighbourID) {
+        int h = (dataObjectID * 31 + neighbourID) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -9,11 +9,13 @@ package org.cloudbus.cloudsim;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.PrintFile;
+import org.cloudbus.cloudsim.core.SimulationContext;
 
 /**
  * The Log class used for performing loggin of the simulation process. It
@@ -29,151 +31,175 @@ public class Log {
      * The Constant LINE_SEPARATOR.
      */
     private static final String LINE_SEPARATOR = System.getProperty("line.separator");
-    
-    private static int messageCount;
-    private static int notificationCount;
-    
+
+    /**
+     * The counters and output of a simulation, held by its
+     * {@link SimulationContext}.
+     */
+    public static final class State {
+
+        private int messageCount;
+        private int notificationCount;
+
+        private int fromCache = 0;
+        private int fromMain = 0;
+        private int fromLocal = 0;
+        private int fromLocalMain = 0;
+        private int fail = 0;
+
+        private int creation = 0;
+        private int removal = 0;
+        private int migration = 0;
+        private int duplication = 0;
+
+        private double intervalDuration;
+        private int maxInterval = 0;
+
+        //ATAKAN: <intervalNo, count>
+        private final HashMap<Integer, Integer> creations = new HashMap<>();
+        private final HashMap<Integer, Integer> removals = new HashMap<>();
+        private final HashMap<Integer, Integer> migrations = new HashMap<>();
+        private final HashMap<Integer, Integer> duplications = new HashMap<>();
+
+        /**
+         * The output.
+         */
+        private OutputStream output;
+
+        /**
+         * The disable output flag.
+         */
+        private boolean disabled;
+        private boolean fileDisabled;
+
+        //ATAKAN: <Cache ID (DC + DataObject), time>
+        private final HashMap<String, Double> caches = new HashMap<>();
+        private double storageCost = 0.0;
+        private double bandwidthCost = 0.0;
+
+        //ATAKAN: <Message Tag, latencies> indexed by the tag, grown on demand.
+        private double[] latencies = new double[0];
+    }
+
+    /**
+     * Gets the log state of the simulation run by the calling thread.
+     *
+     * @return the state
+     */
+    private static State state() {
+        return SimulationContext.current().getLog();
+    }
+
     public static void newMessage(boolean isNotification){
-        if(isNotification) notificationCount++;
-        else messageCount++;
+        State s = state();
+        if(isNotification) s.notificationCount++;
+        else s.messageCount++;
     }
     
     public static double getNotificationPercentage(){
-        return (double)(notificationCount) / (double)(messageCount+notificationCount);
+        State s = state();
+        return (double)(s.notificationCount) / (double)(s.messageCount+s.notificationCount);
     }
 
-    private static int fromCache = 0;
-    private static int fromMain = 0;
-    private static int fromLocal = 0;
-    private static int fromLocalMain = 0;
-    private static int fail = 0;
-
     public static void dataReturnedFromCache() {
-        fromCache++;
+        state().fromCache++;
     }
 
     public static void dataReturnedFromMainDC() {
-        fromMain++;
+        state().fromMain++;
     }
 
     public static void dataFoundInLocalCache() {
-        fromLocal++;
+        state().fromLocal++;
     }
 
     public static void dataFoundInLocalMainDC() {
-        fromLocalMain++;
+        state().fromLocalMain++;
     }
 
     public static void dataNotFound() {
-        fail++;
+        state().fail++;
     }
 
     public static int getDataFoundInLocalCache() {
-        return fromLocal;
+        return state().fromLocal;
     }
 
     public static int getDataFoundInLocalMainDC() {
-        return fromLocalMain;
+        return state().fromLocalMain;
     }
 
     public static int getDataReturnedFromCache() {
-        return fromCache;
+        return state().fromCache;
     }
 
     public static int getDataReturnedFromMainDC() {
-        return fromMain;
+        return state().fromMain;
     }
 
     public static int getDataNotFound() {
-        return fail;
+        return state().fail;
     }
 
-    private static int creation = 0;
-    private static int removal = 0;
-    private static int migration = 0;
-    private static int duplication = 0;
-
-    private static double intervalDuration;
-    private static int maxInterval = 0;
-
-    //ATAKAN: <intervalNo, count>
-    private static final HashMap<Integer, Integer> creations = new HashMap<>();
-    private static final HashMap<Integer, Integer> removals = new HashMap<>();
-    private static final HashMap<Integer, Integer> migrations = new HashMap<>();
-    private static final HashMap<Integer, Integer> duplications = new HashMap<>();
-
     public static void setIntervalDuration(double intervalDuration) {
-        Log.intervalDuration = intervalDuration;
+        state().intervalDuration = intervalDuration;
     }
 
     public static void intervalCount(HashMap<Integer, Integer> hm) {
-        int intervalNo = (int) Math.floor(CloudSim.clock() / intervalDuration);
+        State s = state();
+        int intervalNo = (int) Math.floor(CloudSim.clock() / s.intervalDuration);
         int val = hm.containsKey(intervalNo) ? hm.get(intervalNo) : 0;
         hm.put(intervalNo, val + 1);
-        maxInterval = intervalNo;
+        s.maxInterval = intervalNo;
     }
 
     public static void creation() {
-        intervalCount(creations);
-        creation++;
+        State s = state();
+        intervalCount(s.creations);
+        s.creation++;
     }
 
     public static void removal() {
-        intervalCount(removals);
-        removal++;
+        State s = state();
+        intervalCount(s.removals);
+        s.removal++;
     }
 
     public static void migration() {
-        intervalCount(migrations);
-        migration++;
+        State s = state();
+        intervalCount(s.migrations);
+        s.migration++;
     }
 
     public static void duplication() {
-        intervalCount(duplications);
-        duplication++;
+        State s = state();
+        intervalCount(s.duplications);
+        s.duplication++;
     }
 
     public static void printIntervals() {
-        for (int i=0; i<=maxInterval; i++) {
-            System.out.println(i + " " + creations.get(i) + " " + removals.get(i) + " " + migrations.get(i) + " " + duplications.get(i));
+        State s = state();
+        for (int i=0; i<=s.maxInterval; i++) {
+            System.out.println(i + " " + s.creations.get(i) + " " + s.removals.get(i) + " " + s.migrations.get(i) + " " + s.duplications.get(i));
         }
     }
 
     public static int getCreation() {
-        return creation;
+        return state().creation;
     }
 
     public static int getRemoval() {
-        return removal;
+        return state().removal;
     }
 
     public static int getMigration() {
-        return migration;
+        return state().migration;
     }
 
     public static int getDuplication() {
-        return duplication;
+        return state().duplication;
     }
 
-    /**
-     * The output.
-     */
-    private static OutputStream output;
-
-    /**
-     * The disable output flag.
-     */
-    private static boolean disabled;
-    private static boolean fileDisabled;
-
-    //ATAKAN: <Cache ID (DC + DataObject), time>
-    private static final HashMap<String, Double> caches = new HashMap<>();
-    private static double storageCost = 0.0;
-    private static double bandwidthCost = 0.0;
-
-    //ATAKAN: <Message Tag, latencies>
-    private static final HashMap<Integer, Double> latencies = new HashMap<>();
-
     /**
      * Prints the message.
      *
@@ -265,7 +291,7 @@ public class Log {
      * @param _output the new output
      */
     public static void setOutput(OutputStream _output) {
-        output = _output;
+        state().output = _output;
     }
 
     /**
@@ -274,10 +300,11 @@ public class Log {
      * @return the output
      */
     public static OutputStream getOutput() {
-        if (output == null) {
+        State s = state();
+        if (s.output == null) {
             setOutput(System.out);
         }
-        return output;
+        return s.output;
     }
 
     /**
@@ -286,11 +313,11 @@ public class Log {
      * @param _disabled the new disabled
      */
     public static void setDisabled(boolean _disabled) {
-        disabled = _disabled;
+        state().disabled = _disabled;
     }
 
     public static void setFileDisabled(boolean _disabled) {
-        fileDisabled = _disabled;
+        state().fileDisabled = _disabled;
     }
 
     /**
@@ -299,11 +326,11 @@ public class Log {
      * @return true, if is disable
      */
     public static boolean isDisabled() {
-        return disabled;
+        return state().disabled;
     }
 
     public static boolean isFileDisabled() {
-        return fileDisabled;
+        return state().fileDisabled;
     }
 
     /**
@@ -328,53 +355,56 @@ public class Log {
     //ATAKAN: Log cost
     public static void cacheStart(int DcId, int dataObjectID) {
         String cacheId = DcId + "-" + dataObjectID;
-        caches.put(cacheId, CloudSim.clock());
+        state().caches.put(cacheId, CloudSim.clock());
     }
 
     public static void cacheEnd(int DcId, int dataObjectID, int length) {
-        double unitCost = CloudSim.storageCosts.get(DcId);
+        State s = state();
+        double unitCost = CloudSim.getStorageCosts().get(DcId);
         String cacheId = DcId + "-" + dataObjectID;
-        if (caches.containsKey(cacheId)) {
-            double start = caches.remove(cacheId);
+        if (s.caches.containsKey(cacheId)) {
+            double start = s.caches.remove(cacheId);
             double duration = CloudSim.clock() - start;
-            storageCost += unitCost * length * duration;
+            s.storageCost += unitCost * length * duration;
         } else {
             throw new IllegalArgumentException();
         }
     }
 
     public static double getStorageCost() {
-        return storageCost;
+        return state().storageCost;
     }
 
     public static void addBandwidthCost(int sourceID, int destinationID, int length) {
-        double unitCost = CloudSim.bandwidthCosts.get(sourceID);
+        double unitCost = CloudSim.getBandwidthCosts().get(sourceID);
         double hopCount = NetworkTopology.getHopCount(sourceID, destinationID);
-        bandwidthCost += unitCost * length * hopCount;
+        state().bandwidthCost += unitCost * length * hopCount;
     }
 
     public static double getBandwidthCost() {
-        return bandwidthCost;
+        return state().bandwidthCost;
     }
 
     //ATAKAN: Log latency
     public static void addLatency(int message, double latency) {
-        double val = latency;
-        if (latencies.containsKey(message)) {
-            val += latencies.get(message);
+        State s = state();
+        if (message >= s.latencies.length) {
+            s.latencies = Arrays.copyOf(s.latencies, Math.max(message + 1, 2 * s.latencies.length));
         }
-        latencies.put(message, val);
+        s.latencies[message] += latency;
     }
 
     public static double getTotalLatency() {
+        State s = state();
         double totalLatency = 0;
-        for (int m : latencies.keySet()) {
-            totalLatency += latencies.get(m);
+        for (double latency : s.latencies) {
+            totalLatency += latency;
         }
         return totalLatency;
     }
 
     public static double getMessageLatency(int message) {
-        return latencies.getOrDefault(message, 0.0);
+        double[] latencies = state().latencies;
+        return message >= 0 && message < latencies.length ? latencies[message] : 0.0;
     }
 }
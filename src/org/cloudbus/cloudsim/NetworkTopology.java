@@ -7,18 +7,24 @@
  */
 package org.cloudbus.cloudsim;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.cloudbus.cloudsim.util.IntIntMap;
 
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
-import org.cloudbus.cloudsim.network.GraphReaderBrite;
+import org.cloudbus.cloudsim.network.MatrixCache;
+import org.cloudbus.cloudsim.network.NodeGrid;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
 import org.cloudbus.cloudsim.network.TopologicalNode;
+import org.cloudbus.cloudsim.network.TopologyReader;
 
 /**
  * NetworkTopology is a class that implements network layer in CloudSim. It
@@ -38,25 +44,142 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
-    protected static int nextIdx = 0;
+    /**
+     * The topology of a simulation, held by its {@link SimulationContext}.
+     */
+    public static final class State {
 
-    private static boolean networkEnabled = false;
+        private int nextIdx = 0;
 
-    protected static DelayMatrix_Float delayMatrix = null;
+        private boolean networkEnabled = false;
 
-    protected static double[][] bwMatrix = null;
+        private DelayMatrix_Float delayMatrix = null;
 
-    protected static double bw = 0;
+        private DelayMatrix_Float.Algorithm algorithm = DelayMatrix_Float.Algorithm.FLOYD_WARSHALL;
 
-    protected static TopologicalGraph graph = null;
+        private int cachedRows = DelayMatrix_Float.DEFAULT_CACHED_ROWS;
 
-    protected static Map<Integer, Integer> map = null;
+        private DelayMatrix_Float.Storage storage = DelayMatrix_Float.Storage.ROWS;
 
-    public static double getBw() {
-        return bw;
+        //ATAKAN: Where the matrices are kept between runs, null if they are not.
+        private File matrixCacheDirectory = null;
+
+        //ATAKAN: Whether the matrices follow the link changes, instead of waiting for generateMatrices.
+        private boolean incrementalMatrices = false;
+
+        private double bw = 0;
+
+        private TopologicalGraph graph = null;
+
+        //ATAKAN: <CloudSim entity ID, BRITE node ID> and back, -1 if not mapped, so that both ways are constant time.
+        private int[] nodeOfEntity = new int[0];
+
+        private int[] entityOfNode = new int[0];
+
+        //ATAKAN: The neighbour datacenters of each node, those of node i being neighbourIds[neighbourOffsets[i]]
+        // to neighbourIds[neighbourOffsets[i + 1] - 1]. Built from the links on first use, dropped when the links or the mapping change.
+        private int[] neighbourOffsets = null;
+
+        private int[] neighbourIds = null;
+
+        //ATAKAN: <CloudSim entity ID, number of clients> assigned by getClosestNodeId.
+        private IntIntMap counter = null;
+
+        //ATAKAN: The nodes that can take more clients, built on first use and dropped when the nodes or the mapping change.
+        private NodeGrid nodeGrid = null;
+
+        private int nodeGridLimit;
+
+        /**
+         * Creates a copy of this topology for another simulation. The graph
+         * and the matrices are shared, so they must not change afterwards;
+         * the mapping of the entities is copied and the node usage counters
+         * start from zero.
+         *
+         * @return the copy
+         */
+        public State share() {
+            State copy = new State();
+            copy.nextIdx = nextIdx;
+            copy.networkEnabled = networkEnabled;
+            copy.delayMatrix = delayMatrix;
+            copy.algorithm = algorithm;
+            copy.cachedRows = cachedRows;
+            copy.storage = storage;
+            copy.matrixCacheDirectory = matrixCacheDirectory;
+            copy.incrementalMatrices = incrementalMatrices;
+            copy.bw = bw;
+            copy.graph = graph;
+            copy.nodeOfEntity = nodeOfEntity.clone();
+            copy.entityOfNode = entityOfNode.clone();
+            copy.neighbourOffsets = neighbourOffsets;
+            copy.neighbourIds = neighbourIds;
+            copy.counter = counter == null ? null : new IntIntMap(0);
+            return copy;
+        }
+
+        private int nodeOf(int entityID) {
+            return entityID >= 0 && entityID < nodeOfEntity.length ? nodeOfEntity[entityID] : -1;
+        }
+
+        private int entityOf(int nodeID) {
+            return nodeID >= 0 && nodeID < entityOfNode.length ? entityOfNode[nodeID] : -1;
+        }
+
+        private boolean isMapped(int entityID) {
+            return nodeOf(entityID) >= 0;
+        }
+
+        private void map(int entityID, int nodeID) {
+            if (entityID >= nodeOfEntity.length) {
+                nodeOfEntity = grow(nodeOfEntity, entityID);
+            }
+            if (nodeID >= entityOfNode.length) {
+                entityOfNode = grow(entityOfNode, nodeID);
+            }
+            nodeOfEntity[entityID] = nodeID;
+            entityOfNode[nodeID] = entityID;
+            neighbourOffsets = null;
+            nodeGrid = null;
+        }
+
+        private void unmap(int entityID) {
+            int nodeID = nodeOf(entityID);
+            if (nodeID >= 0) {
+                nodeOfEntity[entityID] = -1;
+                entityOfNode[nodeID] = -1;
+                neighbourOffsets = null;
+                nodeGrid = null;
+            }
+        }
+
+        private void clearMap() {
+            nodeOfEntity = new int[0];
+            entityOfNode = new int[0];
+            neighbourOffsets = null;
+            nodeGrid = null;
+        }
+
+        private static int[] grow(int[] array, int index) {
+            int length = array.length;
+            int[] grown = Arrays.copyOf(array, Math.max(index + 1, 2 * length));
+            Arrays.fill(grown, length, grown.length, -1);
+            return grown;
+        }
     }
 
-    protected static Map<Integer, Integer> counter = null;
+    /**
+     * Gets the topology of the simulation run by the calling thread.
+     *
+     * @return the topology
+     */
+    private static State state() {
+        return SimulationContext.current().getTopology();
+    }
+
+    public static double getBw() {
+        return state().bw;
+    }
 
     /**
      * Creates the network topology if file exists and if file can be
@@ -68,36 +191,263 @@ public class NetworkTopology {
      * @post $none
      */
     public static void buildNetworkTopology(String fileName) {
+        buildNetworkTopology(fileName, TopologyReader.Format.BRITE);
+    }
+
+    /**
+     * Creates the network topology if file exists and if file can be
+     * succesfully parsed. The file is streamed by a {@link TopologyReader}.
+     *
+     * @param fileName name of the topology file
+     * @param format the format of the file
+     * @pre fileName != null
+     * @post $none
+     */
+    public static void buildNetworkTopology(String fileName, TopologyReader.Format format) {
+        State s = state();
         Log.printLine("Topology file: " + fileName);
 
         // try to find the file
-        GraphReaderBrite reader = new GraphReaderBrite();
+        TopologyReader reader = new TopologyReader(format);
 
         try {
-            graph = reader.readGraphFile(fileName);
-            map = new HashMap<Integer, Integer>();
-            counter = new HashMap<Integer, Integer>();
+            s.graph = reader.readGraphFile(fileName);
+            s.clearMap();
+            s.counter = new IntIntMap(0);
             generateMatrices();
-            nextIdx = bwMatrix.length; //ATAKAN: in order to allow future link/node additions.
-        } catch (IOException e) {
+            s.nextIdx = s.graph.getNumberOfNodes(); //ATAKAN: in order to allow future link/node additions.
+        } catch (IOException | UncheckedIOException e) {
             // problem with the file. Does not simulate network
-            Log.printLine("Problem in processing BRITE file. Network simulation is disabled. Error: "
+            Log.printLine("Problem in processing topology file. Network simulation is disabled. Error: "
                     + e.getMessage());
         }
     }
 
     /**
-     * Generates the matrices used internally to set latency and bandwidth
-     * between elements
+     * Generates the matrices used internally to set latency between elements.
+     * The bandwidth is read from the links, so no matrix is kept for it.
      */
     public static void generateMatrices() {
-        // creates the delay matrix
-        delayMatrix = new DelayMatrix_Float(graph, false);
+        State s = state();
+        //ATAKAN: Reuses the matrices stored by a run over the same links, if any. The lazy rows are not stored.
+        MatrixCache cache = null;
+        byte[] key = null;
+        DelayMatrix_Float cached = null;
+        if (s.matrixCacheDirectory != null && s.algorithm != DelayMatrix_Float.Algorithm.LAZY_DIJKSTRA) {
+            cache = new MatrixCache(s.matrixCacheDirectory);
+            key = MatrixCache.key(s.graph, false, s.algorithm);
+            try {
+                cached = cache.load(key, s.graph.getNumberOfNodes());
+            } catch (IOException e) {
+                Log.printLine("Problem in reading the matrix cache: " + e.getMessage());
+            }
+        }
+
+        if (cached != null) {
+            s.delayMatrix = cached;
+        } else {
+            // creates the delay matrix
+            s.delayMatrix = new DelayMatrix_Float(s.graph, false, s.algorithm, s.cachedRows, s.storage);
+
+            if (cache != null) {
+                try {
+                    cache.store(key, s.delayMatrix);
+                } catch (IOException e) {
+                    Log.printLine("Problem in writing the matrix cache: " + e.getMessage());
+                }
+            }
+        }
+
+        //ATAKAN: The neighbour index is built on first use, once the entities are mapped.
+        s.neighbourOffsets = null;
+
+        s.networkEnabled = true;
+    }
+
+    /**
+     * Creates the index of the neighbour datacenters of each node: the mapped
+     * entities linked to the node that have a storage cost, in the order of
+     * the nodes. It reads the links, not the matrices, so it takes O(m log m)
+     * time. When two nodes have several links, the last one tells whether
+     * they are linked.
+     *
+     * @param s the topology
+     */
+    private static void createNeighbourIndex(State s) {
+        HashMap<Integer, Double> storageCosts = CloudSim.getStorageCosts();
+        int nodes = s.graph.getNumberOfNodes();
+        Iterator<TopologicalLink> iter = s.graph.getLinkIterator();
+        while (iter.hasNext()) {
+            TopologicalLink link = iter.next();
+            nodes = Math.max(nodes, Math.max(link.getSrcNodeID(), link.getDestNodeID()) + 1);
+        }
+        boolean[] datacenter = new boolean[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int id = s.entityOf(node);
+            datacenter[node] = id > 0 && storageCosts.containsKey(id);
+        }
+
+        // the datacenters linked to each node, in the order of the links
+        int[] offsets = new int[nodes + 1];
+        iter = s.graph.getLinkIterator();
+        while (iter.hasNext()) {
+            TopologicalLink link = iter.next();
+            int src = link.getSrcNodeID();
+            int dest = link.getDestNodeID();
+            if (datacenter[src]) {
+                offsets[dest + 1]++;
+            }
+            if (datacenter[dest] && src != dest) {
+                offsets[src + 1]++;
+            }
+        }
+        for (int node = 0; node < nodes; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] ids = new int[offsets[nodes]];
+        float[] bws = new float[offsets[nodes]];
+        int[] next = Arrays.copyOf(offsets, nodes);
+        iter = s.graph.getLinkIterator();
+        while (iter.hasNext()) {
+            TopologicalLink link = iter.next();
+            int src = link.getSrcNodeID();
+            int dest = link.getDestNodeID();
+            if (datacenter[src]) {
+                ids[next[dest]] = src;
+                bws[next[dest]++] = link.getLinkBw();
+            }
+            if (datacenter[dest] && src != dest) {
+                ids[next[src]] = dest;
+                bws[next[src]++] = link.getLinkBw();
+            }
+        }
+
+        // sorted by node and link order, keeping the nodes whose last link has a bandwidth
+        long[] keys = new long[16];
+        int count = 0;
+        for (int node = 0; node < nodes; node++) {
+            int from = offsets[node];
+            int degree = offsets[node + 1] - from;
+            if (keys.length < degree) {
+                keys = new long[Math.max(degree, 2 * keys.length)];
+            }
+            for (int k = 0; k < degree; k++) {
+                keys[k] = ((long) ids[from + k] << 32) | k;
+            }
+            Arrays.sort(keys, 0, degree);
+            offsets[node] = count;
+            for (int k = 0; k < degree; k++) {
+                int neighbour = (int) (keys[k] >>> 32);
+                if ((k + 1 == degree || (int) (keys[k + 1] >>> 32) != neighbour)
+                        && bws[from + (int) keys[k]] > 0) {
+                    ids[count++] = s.entityOf(neighbour);
+                }
+            }
+        }
+        offsets[nodes] = count;
+        s.neighbourIds = Arrays.copyOf(ids, count);
+        s.neighbourOffsets = offsets;
+    }
+
+    private static State neighbourIndex() {
+        State s = state();
+        if (s.neighbourOffsets == null) {
+            createNeighbourIndex(s);
+        }
+        return s;
+    }
+
+    /**
+     * Sets the algorithm that calculates the shortest paths when the matrices
+     * are generated. Floyd-Warshall is the default; Dijkstra from each source
+     * is much faster on large sparse topologies.
+     *
+     * @param algorithm the algorithm
+     * @throws IllegalArgumentException if the algorithm is null
+     */
+    public static void setShortestPathAlgorithm(DelayMatrix_Float.Algorithm algorithm) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("The shortest path algorithm should not be null.");
+        }
+        state().algorithm = algorithm;
+    }
+
+    public static DelayMatrix_Float.Algorithm getShortestPathAlgorithm() {
+        return state().algorithm;
+    }
 
-        // creates the bw matrix
-        bwMatrix = createBwMatrix(graph, false);
+    /**
+     * Sets the number of source rows kept by the lazy Dijkstra algorithm. A
+     * row takes 12 bytes per node of the topology.
+     *
+     * @param rows the number of rows
+     * @throws IllegalArgumentException if the number of rows is not positive
+     */
+    public static void setShortestPathCachedRows(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("At least one row should be cached.");
+        }
+        state().cachedRows = rows;
+    }
 
-        networkEnabled = true;
+    public static int getShortestPathCachedRows() {
+        return state().cachedRows;
+    }
+
+    /**
+     * Sets where the delay, hop count and predecessor matrices are
+     * stored when they are generated. Arrays of rows on the heap are the
+     * default; flat matrices off the heap or mapped from a file keep the heap
+     * small on large topologies. The lazy Dijkstra algorithm keeps its rows on
+     * the heap whatever the storage.
+     *
+     * @param storage the storage
+     * @throws IllegalArgumentException if the storage is null
+     */
+    public static void setMatrixStorage(DelayMatrix_Float.Storage storage) {
+        if (storage == null) {
+            throw new IllegalArgumentException("The matrix storage should not be null.");
+        }
+        state().storage = storage;
+    }
+
+    public static DelayMatrix_Float.Storage getMatrixStorage() {
+        return state().storage;
+    }
+
+    /**
+     * Sets the directory where the matrices are kept between runs. When the
+     * matrices are generated, those of a topology with the same links and
+     * shortest path algorithm are mapped from the directory instead of being
+     * computed, and the computed ones are stored there.
+     *
+     * @param directory the directory, or null to compute the matrices of
+     * every run
+     */
+    public static void setMatrixCacheDirectory(File directory) {
+        state().matrixCacheDirectory = directory;
+    }
+
+    public static File getMatrixCacheDirectory() {
+        return state().matrixCacheDirectory;
+    }
+
+    /**
+     * Sets whether the matrices follow the links added by
+     * {@link #addLink(int, int, double, double)} and the latencies changed by
+     * {@link #setLinkLatency(int, int, double)}, so that the topology can
+     * change during the simulation. Otherwise, the default, the matrices only
+     * change when they are generated again. The matrices are shared with the
+     * simulations started from this topology, which see the changes too.
+     *
+     * @param incremental true to update the matrices on each change
+     */
+    public static void setIncrementalMatrices(boolean incremental) {
+        state().incrementalMatrices = incremental;
+    }
+
+    public static boolean isIncrementalMatrices() {
+        return state().incrementalMatrices;
     }
 
     /**
@@ -112,65 +462,72 @@ public class NetworkTopology {
      * @post $none
      */
     public static void addLink(int srcId, int destId, double bw, double lat) {
-        NetworkTopology.bw = bw;
-        if (graph == null) {
-            graph = new TopologicalGraph();
-        }
-
-        if (map == null) {
-            map = new HashMap<Integer, Integer>();
+        State s = state();
+        s.bw = bw;
+        if (s.graph == null) {
+            s.graph = new TopologicalGraph();
         }
 
         // maybe add the nodes
-        if (!map.containsKey(srcId)) {
-            graph.addNode(new TopologicalNode(nextIdx));
-            map.put(srcId, nextIdx);
-            nextIdx++;
+        if (!s.isMapped(srcId)) {
+            s.graph.addNode(new TopologicalNode(s.nextIdx));
+            s.map(srcId, s.nextIdx);
+            s.nextIdx++;
         }
 
-        if (!map.containsKey(destId)) {
-            graph.addNode(new TopologicalNode(nextIdx));
-            map.put(destId, nextIdx);
-            nextIdx++;
+        if (!s.isMapped(destId)) {
+            s.graph.addNode(new TopologicalNode(s.nextIdx));
+            s.map(destId, s.nextIdx);
+            s.nextIdx++;
         }
 
         // generate a new link
-        graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+        s.graph.addLink(new TopologicalLink(s.nodeOf(srcId), s.nodeOf(destId), (float) lat, (float) bw));
+        s.neighbourOffsets = null;
+        s.nodeGrid = null;
 
         //generateMatrices();
+        //ATAKAN: A full generation per link is too slow, but the matrices can follow the link incrementally.
+        if (s.incrementalMatrices && s.delayMatrix != null) {
+            s.delayMatrix.addNodes(s.graph, false);
+            s.delayMatrix.addLink(s.graph, false, s.nodeOf(srcId), s.nodeOf(destId), (float) lat);
+        }
     }
 
     /**
-     * Creates the matrix containiing the available bandiwdth beteen two nodes
+     * Changes the latency of the links between two entities, for instance
+     * when a link degrades or recovers during the simulation. The matrices
+     * follow if they are incremental; the graph is shared with the
+     * simulations started from this topology.
      *
-     * @param graph topological graph describing the topology
-     * @param directed true if the graph is directed; false otherwise
-     * @return the bandwidth graph
+     * @param srcId ID of the link's source
+     * @param destId ID of the link's destination
+     * @param lat the new latency
+     * @throws IllegalArgumentException if the entities are not linked
      */
-    private static double[][] createBwMatrix(TopologicalGraph graph, boolean directed) {
-        int nodes = graph.getNumberOfNodes();
-
-        double[][] mtx = new double[nodes][nodes];
-
-        // cleanup matrix
-        for (int i = 0; i < nodes; i++) {
-            for (int j = 0; j < nodes; j++) {
-                mtx[i][j] = 0.0;
+    public static void setLinkLatency(int srcId, int destId, double lat) {
+        State s = state();
+        int src = s.nodeOf(srcId);
+        int dest = s.nodeOf(destId);
+        float oldDelay = Float.MAX_VALUE;
+        if (s.graph != null && src >= 0 && dest >= 0) {
+            Iterator<TopologicalLink> iter = s.graph.getLinkIterator();
+            while (iter.hasNext()) {
+                TopologicalLink link = iter.next();
+                // the links are not directed
+                if ((link.getSrcNodeID() == src && link.getDestNodeID() == dest)
+                        || (link.getSrcNodeID() == dest && link.getDestNodeID() == src)) {
+                    oldDelay = Math.min(oldDelay, link.getLinkDelay());
+                    link.setLinkDelay((float) lat);
+                }
             }
         }
-
-        Iterator<TopologicalLink> iter = graph.getLinkIterator();
-        while (iter.hasNext()) {
-            TopologicalLink edge = iter.next();
-
-            mtx[edge.getSrcNodeID()][edge.getDestNodeID()] = edge.getLinkBw();
-
-            if (!directed) {
-                mtx[edge.getDestNodeID()][edge.getSrcNodeID()] = edge.getLinkBw();
-            }
+        if (oldDelay == Float.MAX_VALUE) {
+            throw new IllegalArgumentException("Entities " + srcId + " and " + destId + " are not linked.");
+        }
+        if (s.incrementalMatrices && s.delayMatrix != null) {
+            s.delayMatrix.changeLinkDelay(s.graph, false, src, dest, oldDelay, (float) lat);
         }
-
-        return mtx;
     }
 
     /**
@@ -184,12 +541,13 @@ public class NetworkTopology {
      * @post $none
      */
     public static void mapNode(int cloudSimEntityID, int briteID) {
-        if (networkEnabled) {
+        State s = state();
+        if (s.networkEnabled) {
             try {
                 // this CloudSim entity was already mapped?
-                if (!map.containsKey(cloudSimEntityID)) {
-                    if (!map.containsValue(briteID)) { // this BRITE node was already mapped?
-                        map.put(cloudSimEntityID, briteID);
+                if (!s.isMapped(cloudSimEntityID)) {
+                    if (s.entityOf(briteID) < 0) { // this BRITE node was already mapped?
+                        s.map(cloudSimEntityID, briteID);
                     } else {
                         Log.printLine("Error in network mapping. BRITE node " + briteID + " already in use.");
                     }
@@ -213,9 +571,10 @@ public class NetworkTopology {
      * @post $none
      */
     public static void unmapNode(int cloudSimEntityID) {
-        if (networkEnabled) {
+        State s = state();
+        if (s.networkEnabled) {
             try {
-                map.remove(cloudSimEntityID);
+                s.unmap(cloudSimEntityID);
             } catch (Exception e) {
                 Log.printLine("Error in network unmapping. CloudSim node: " + cloudSimEntityID);
             }
@@ -233,10 +592,11 @@ public class NetworkTopology {
      * @post $none
      */
     public static double getDelay(int srcID, int destID) {
-        if (networkEnabled) {
+        State s = state();
+        if (s.networkEnabled) {
             try {
                 // add the network latency
-                double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+                double delay = s.delayMatrix.getDelay(s.nodeOf(srcID), s.nodeOf(destID));
 
                 return delay;
             } catch (Exception e) {
@@ -247,10 +607,11 @@ public class NetworkTopology {
     }
 
     public static double getHopCount(int srcID, int destID) {
-        if (networkEnabled) {
+        State s = state();
+        if (s.networkEnabled) {
             try {
                 // add the network latency
-                double delay = delayMatrix.getHopCount(map.get(srcID), map.get(destID));
+                double delay = s.delayMatrix.getHopCount(s.nodeOf(srcID), s.nodeOf(destID));
 
                 return delay;
             } catch (Exception e) {
@@ -261,62 +622,103 @@ public class NetworkTopology {
     }
 
     public static double getDcCentrality(int srcID) {
-        return delayMatrix.getCentrality(map.get(srcID));
+        State s = state();
+        return s.delayMatrix.getCentrality(s.nodeOf(srcID));
     }
 
     public static int getMostCentralDc() {
-        return inverseMap(delayMatrix.getMostCentralNode());
+        return inverseMap(state().delayMatrix.getMostCentralNode());
     }
 
+    /**
+     * Assigns a client at a position to the closest entity that was assigned
+     * less than a number of clients.
+     *
+     * @param x the x coordinate of the client
+     * @param y the y coordinate of the client
+     * @param limit the number of clients an entity can take
+     * @return the entity id, or -1 if all entities are full
+     */
     public static int getClosestNodeId(double x, double y, int limit) {
-        int minID = -1;
-        double minError = Double.MAX_VALUE;
-        Iterator<TopologicalNode> iter = graph.getNodeIterator();
-        while (iter.hasNext()) {
-            TopologicalNode n = iter.next();
-            int val = counter.get(inverseMap(n.getNodeID())) == null ? 0 : counter.get(inverseMap(n.getNodeID()));
-            if (val >= limit) {
-                continue;
+        State s = state();
+        if (s.counter == null) {
+            s.counter = new IntIntMap(0);
+        }
+        //ATAKAN: The full nodes are removed from the grid, it is rebuilt if the limit changes.
+        if (s.nodeGrid == null || s.nodeGridLimit != limit) {
+            s.nodeGrid = new NodeGrid(s.graph);
+            s.nodeGridLimit = limit;
+            Iterator<TopologicalNode> iter = s.graph.getNodeIterator();
+            while (iter.hasNext()) {
+                int node = iter.next().getNodeID();
+                if (s.counter.get(s.entityOf(node)) >= limit) {
+                    s.nodeGrid.remove(node);
+                }
             }
-            double error = Math.pow(x - n.getCoordinateX(), 2) + Math.pow(y - n.getCoordinateY(), 2);
-            if (error < minError) {
-                minID = inverseMap(n.getNodeID());
-                minError = error;
+        }
+        int node = s.nodeGrid.nearest(x, y);
+        int minID = node < 0 ? -1 : inverseMap(node);
+        if (s.counter.addTo(minID, 1) >= limit && node >= 0) {
+            if (minID < 0) {
+                // the nodes that are not mapped share their counter
+                s.nodeGrid = null;
+            } else {
+                s.nodeGrid.remove(node);
             }
         }
-        int val = counter.get(minID) == null ? 0 : counter.get(minID);
-        val++;
-        counter.put(minID, val);
         return minID;
     }
 
     // ATAKAN: Returns the node preceeding the destination on the shortest path from source to destination.
     public static int getSourceNeighbour(int sourceId, int destinationId) {
-        return inverseMap(delayMatrix.getSourceNeighbour(map.get(sourceId), map.get(destinationId)));
+        State s = state();
+        return inverseMap(s.delayMatrix.getSourceNeighbour(s.nodeOf(sourceId), s.nodeOf(destinationId)));
     }
 
     // ATAKAN: Retuns IDs of all neighbours of the destination.
     public static ArrayList<Integer> getNeighbours(int destinationId) {
-        ArrayList<Integer> IDs = new ArrayList<>();
-        for (int i = 0; i < bwMatrix.length; i++) {
-            if (bwMatrix[i][map.get(destinationId)] > 0) {
-                int id = inverseMap(i);
-                if (id > 0 && CloudSim.storageCosts.containsKey(id)) {
-                    IDs.add(id);
-                }
-            }
+        int count = getNeighbourCount(destinationId);
+        ArrayList<Integer> IDs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            IDs.add(getNeighbour(destinationId, i));
         }
         return IDs;
     }
 
+    /**
+     * Gets the number of neighbour datacenters of an entity. With
+     * {@link #getNeighbour(int, int)}, it reads the neighbour index built from
+     * the links without copying it.
+     *
+     * @param destinationId the entity id
+     * @return the number of neighbour datacenters
+     */
+    public static int getNeighbourCount(int destinationId) {
+        State s = neighbourIndex();
+        int node = s.nodeOf(destinationId);
+        return s.neighbourOffsets[node + 1] - s.neighbourOffsets[node];
+    }
+
+    /**
+     * Gets a neighbour datacenter of an entity, in the order of the topology
+     * nodes.
+     *
+     * @param destinationId the entity id
+     * @param index the index of the neighbour, less than
+     * {@link #getNeighbourCount(int)}
+     * @return the neighbour datacenter id
+     */
+    public static int getNeighbour(int destinationId, int index) {
+        State s = neighbourIndex();
+        return s.neighbourIds[s.neighbourOffsets[s.nodeOf(destinationId)] + index];
+    }
+
     private static int inverseMap(int id) {
-        for (int i : map.keySet()) {
-            if (map.get(i) == id) {
-                return i;
-            }
+        int entityID = state().entityOf(id);
+        if (entityID < 0) {
+            System.err.println("Inverse Map Error!");
         }
-        System.err.println("Inverse Map Error!");
-        return -1;
+        return entityID;
     }
 
     /**
@@ -330,7 +732,7 @@ public class NetworkTopology {
      * @post $none
      */
     public static boolean isNetworkEnabled() {
-        return networkEnabled;
+        return state().networkEnabled;
     }
 
 }
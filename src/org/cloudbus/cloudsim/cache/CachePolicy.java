@@ -0,0 +1,195 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+/**
+ * CachePolicy is an abstract class that represents the replacement policy of the caches kept by a
+ * datacenter in the baseline cache mode. The policy only keeps track of the data object ids and
+ * lengths; the datacenter keeps the caches themselves and calls the policy as follows:
+ * <ul>
+ * <li>{@link #hit(int)} when a cached data object is used again;
+ * <li>on a miss, {@link #admit(int, int)} first, then {@link #evict()} as long as
+ * {@link #isFull(int)}, then {@link #insert(int, int)}.
+ * </ul>
+ * The capacity is a number of entries, a total length or both.
+ *
+ * @author Atakan
+ */
+public abstract class CachePolicy {
+
+	/**
+	 * The available replacement policies.
+	 */
+	public enum Type {
+
+		/** Least recently used. */
+		LRU,
+
+		/** Least frequently used, least recently used among the same frequency. */
+		LFU,
+
+		/** Adaptive replacement cache. */
+		ARC,
+
+		/** Small, main and ghost FIFO queues. */
+		S3_FIFO,
+
+		/** LRU window in front of a segmented LRU, admission by a count-min sketch. */
+		TINY_LFU;
+
+		/**
+		 * Creates a policy of this type.
+		 *
+		 * @param capacity the maximum number of entries
+		 * @param capacityBytes the maximum total length of the entries
+		 * @return the policy
+		 */
+		public CachePolicy create(int capacity, long capacityBytes) {
+			switch (this) {
+				case LFU:
+					return new CachePolicyLfu(capacity, capacityBytes);
+				case ARC:
+					return new CachePolicyArc(capacity, capacityBytes);
+				case S3_FIFO:
+					return new CachePolicyS3Fifo(capacity, capacityBytes);
+				case TINY_LFU:
+					return new CachePolicyTinyLfu(capacity, capacityBytes);
+				default:
+					return new CachePolicyLru(capacity, capacityBytes);
+			}
+		}
+	}
+
+	/** The maximum number of entries. */
+	private final int capacity;
+
+	/** The maximum total length of the entries. */
+	private final long capacityBytes;
+
+	/**
+	 * Creates a new CachePolicy.
+	 *
+	 * @param capacity the maximum number of entries, Integer.MAX_VALUE for no limit
+	 * @param capacityBytes the maximum total length of the entries, Long.MAX_VALUE for no limit
+	 * @throws IllegalArgumentException if a capacity is negative
+	 */
+	public CachePolicy(int capacity, long capacityBytes) {
+		if (capacity < 0 || capacityBytes < 0) {
+			throw new IllegalArgumentException("The cache capacity should not be negative.");
+		}
+		this.capacity = capacity;
+		this.capacityBytes = capacityBytes;
+	}
+
+	/**
+	 * Records a miss of a data object and decides whether it should be cached. This implementation
+	 * refuses the data objects that do not fit in the whole cache.
+	 *
+	 * @param id the data object id
+	 * @param length the length of the data object
+	 * @return true, if the data object should be cached
+	 */
+	public boolean admit(int id, int length) {
+		return capacity > 0 && length <= capacityBytes;
+	}
+
+	/**
+	 * Checks whether an entry should be evicted before a data object is inserted.
+	 *
+	 * @param length the length of the data object to insert
+	 * @return true, if the policy is not empty and inserting the data object would exceed the
+	 *         capacity
+	 */
+	public boolean isFull(int length) {
+		return size() > 0 && (size() >= capacity || getWeight() + length > capacityBytes);
+	}
+
+	/**
+	 * Records a use of a cached data object.
+	 *
+	 * @param id the data object id
+	 */
+	public abstract void hit(int id);
+
+	/**
+	 * Inserts a data object that is not in the policy.
+	 *
+	 * @param id the data object id
+	 * @param length the length of the data object
+	 */
+	public abstract void insert(int id, int length);
+
+	/**
+	 * Chooses and removes the entry to evict.
+	 *
+	 * @return the evicted data object id
+	 * @throws java.util.NoSuchElementException if the policy is empty
+	 */
+	public abstract int evict();
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return the number of entries
+	 */
+	public abstract int size();
+
+	/**
+	 * Gets the total length of the entries.
+	 *
+	 * @return the total length
+	 */
+	public abstract long getWeight();
+
+	/**
+	 * Gets the maximum number of entries.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the maximum total length of the entries.
+	 *
+	 * @return the capacity in bytes
+	 */
+	public long getCapacityBytes() {
+		return capacityBytes;
+	}
+
+	/**
+	 * Splits the capacity in entries, keeping at least one entry unless the capacity has no
+	 * limit.
+	 *
+	 * @param fraction the fraction of the capacity
+	 * @return the number of entries
+	 */
+	protected int capacityShare(double fraction) {
+		if (capacity == Integer.MAX_VALUE) {
+			return Integer.MAX_VALUE;
+		}
+		return Math.max(1, (int) (capacity * fraction));
+	}
+
+	/**
+	 * Splits the capacity in bytes, unless it has no limit.
+	 *
+	 * @param fraction the fraction of the capacity
+	 * @return the total length
+	 */
+	protected long capacityBytesShare(double fraction) {
+		if (capacityBytes == Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		return Math.max(1, (long) (capacityBytes * fraction));
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+import org.cloudbus.cloudsim.util.IntLinkedSet;
+
+/**
+ * CachePolicyArc implements the adaptive replacement cache of Megiddo and Modha. The entries used
+ * once (T1) and the entries used again (T2) are kept in two LRU lists, and the ids recently
+ * evicted from each list are remembered in two ghost lists (B1 and B2). A miss that hits a ghost
+ * list moves the target size of T1 towards the list that would have kept the data object.
+ * <p>
+ * The target is counted in entries. When the capacity is only given in bytes, the number of
+ * entries currently cached is used as the number of entries of the cache.
+ *
+ * @author Atakan
+ */
+public class CachePolicyArc extends CachePolicy {
+
+	/** The entries used once, least recently used first. */
+	private final IntLinkedSet t1 = new IntLinkedSet();
+
+	/** The entries used more than once, least recently used first. */
+	private final IntLinkedSet t2 = new IntLinkedSet();
+
+	/** The ids recently evicted from t1. */
+	private final IntLinkedSet b1 = new IntLinkedSet();
+
+	/** The ids recently evicted from t2. */
+	private final IntLinkedSet b2 = new IntLinkedSet();
+
+	/** The target number of entries of t1. */
+	private int p = 0;
+
+	/** Whether the data object being admitted is in b2. */
+	private boolean admittedFromB2 = false;
+
+	/**
+	 * Creates a new CachePolicyArc.
+	 *
+	 * @param capacity the maximum number of entries
+	 * @param capacityBytes the maximum total length of the entries
+	 */
+	public CachePolicyArc(int capacity, long capacityBytes) {
+		super(capacity, capacityBytes);
+	}
+
+	@Override
+	public boolean admit(int id, int length) {
+		if (!super.admit(id, length)) {
+			return false;
+		}
+		admittedFromB2 = false;
+		if (b1.contains(id)) {
+			p = Math.min(target(), p + Math.max(b2.size() / b1.size(), 1));
+		} else if (b2.contains(id)) {
+			p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+			admittedFromB2 = true;
+		}
+		return true;
+	}
+
+	@Override
+	public void hit(int id) {
+		int length = t1.weightOf(id);
+		if (length >= 0) {
+			t1.remove(id);
+			t2.addLast(id, length);
+		} else {
+			t2.moveToLast(id);
+		}
+	}
+
+	@Override
+	public void insert(int id, int length) {
+		if (b1.remove(id) || b2.remove(id)) {
+			t2.addLast(id, length);
+		} else {
+			t1.addLast(id, length);
+		}
+		admittedFromB2 = false;
+
+		// bound the ghost lists
+		int c = target();
+		while (!b1.isEmpty() && t1.size() + b1.size() > c) {
+			b1.removeFirst();
+		}
+		while (!b2.isEmpty() && t1.size() + t2.size() + b1.size() + b2.size() > 2 * c) {
+			b2.removeFirst();
+		}
+	}
+
+	@Override
+	public int evict() {
+		boolean fromT1 = !t1.isEmpty()
+				&& (t2.isEmpty() || t1.size() > p || (admittedFromB2 && t1.size() == p));
+		int id;
+		if (fromT1) {
+			id = t1.removeFirst();
+			b1.addLast(id, 0);
+		} else {
+			id = t2.removeFirst();
+			b2.addLast(id, 0);
+		}
+		return id;
+	}
+
+	@Override
+	public int size() {
+		return t1.size() + t2.size();
+	}
+
+	@Override
+	public long getWeight() {
+		return t1.getWeight() + t2.getWeight();
+	}
+
+	/**
+	 * Gets the number of entries the lists are sized for.
+	 *
+	 * @return the capacity in entries
+	 */
+	private int target() {
+		if (getCapacity() == Integer.MAX_VALUE) {
+			return Math.max(1, size());
+		}
+		return getCapacity();
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import org.cloudbus.cloudsim.util.IntIntMap;
+import org.cloudbus.cloudsim.util.IntLinkedSet;
+
+/**
+ * CachePolicyLfu evicts the least frequently used entry, the least recently used one among the
+ * entries of the same frequency. The entries are kept in one list per frequency, so a hit moves
+ * an entry to the next list and an eviction takes the head of the lowest one.
+ *
+ * @author Atakan
+ */
+public class CachePolicyLfu extends CachePolicy {
+
+	/** The frequencies of the entries. */
+	private final IntIntMap frequencies = new IntIntMap(0);
+
+	/** The entries of each frequency, least recently used first. */
+	private final TreeMap<Integer, IntLinkedSet> buckets = new TreeMap<Integer, IntLinkedSet>();
+
+	/** The total length of the entries. */
+	private long weight = 0;
+
+	/**
+	 * Creates a new CachePolicyLfu.
+	 *
+	 * @param capacity the maximum number of entries
+	 * @param capacityBytes the maximum total length of the entries
+	 */
+	public CachePolicyLfu(int capacity, long capacityBytes) {
+		super(capacity, capacityBytes);
+	}
+
+	@Override
+	public void hit(int id) {
+		int frequency = frequencies.get(id);
+		if (frequency == 0) {
+			return;
+		}
+		IntLinkedSet bucket = buckets.get(frequency);
+		int length = bucket.weightOf(id);
+		bucket.remove(id);
+		if (bucket.isEmpty()) {
+			buckets.remove(frequency);
+		}
+		frequencies.put(id, frequency + 1);
+		bucket(frequency + 1).addLast(id, length);
+	}
+
+	@Override
+	public void insert(int id, int length) {
+		if (frequencies.containsKey(id)) {
+			return;
+		}
+		frequencies.put(id, 1);
+		bucket(1).addLast(id, length);
+		weight += length;
+	}
+
+	@Override
+	public int evict() {
+		Map.Entry<Integer, IntLinkedSet> lowest = buckets.firstEntry();
+		if (lowest == null) {
+			throw new NoSuchElementException();
+		}
+		IntLinkedSet bucket = lowest.getValue();
+		int id = bucket.first();
+		weight -= bucket.weightOf(id);
+		bucket.remove(id);
+		if (bucket.isEmpty()) {
+			buckets.remove(lowest.getKey());
+		}
+		frequencies.remove(id);
+		return id;
+	}
+
+	@Override
+	public int size() {
+		return frequencies.size();
+	}
+
+	@Override
+	public long getWeight() {
+		return weight;
+	}
+
+	private IntLinkedSet bucket(int frequency) {
+		IntLinkedSet bucket = buckets.get(frequency);
+		if (bucket == null) {
+			bucket = new IntLinkedSet();
+			buckets.put(frequency, bucket);
+		}
+		return bucket;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+import org.cloudbus.cloudsim.util.IntLinkedSet;
+
+/**
+ * CachePolicyLru evicts the least recently used entry.
+ *
+ * @author Atakan
+ */
+public class CachePolicyLru extends CachePolicy {
+
+	/** The entries, least recently used first. */
+	private final IntLinkedSet entries = new IntLinkedSet();
+
+	/**
+	 * Creates a new CachePolicyLru.
+	 *
+	 * @param capacity the maximum number of entries
+	 * @param capacityBytes the maximum total length of the entries
+	 */
+	public CachePolicyLru(int capacity, long capacityBytes) {
+		super(capacity, capacityBytes);
+	}
+
+	@Override
+	public void hit(int id) {
+		entries.moveToLast(id);
+	}
+
+	@Override
+	public void insert(int id, int length) {
+		entries.addLast(id, length);
+	}
+
+	@Override
+	public int evict() {
+		return entries.removeFirst();
+	}
+
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public long getWeight() {
+		return entries.getWeight();
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+import org.cloudbus.cloudsim.util.IntIntMap;
+import org.cloudbus.cloudsim.util.IntLinkedSet;
+
+/**
+ * CachePolicyS3Fifo implements the S3-FIFO policy of Yang et al. New entries go to a small FIFO
+ * queue holding a tenth of the capacity. The entries leaving the small queue move to the main FIFO
+ * queue if they were used again, otherwise they are evicted and their ids are remembered in a
+ * ghost queue; a data object found in the ghost queue is inserted directly in the main queue. The
+ * main queue gives the entries used again another round instead of evicting them. Each entry
+ * counts its uses up to 3.
+ *
+ * @author Atakan
+ */
+public class CachePolicyS3Fifo extends CachePolicy {
+
+	/** The maximum use count of an entry. */
+	private static final int MAX_FREQUENCY = 3;
+
+	/** The share of the capacity of the small queue. */
+	private static final double SMALL_SHARE = 0.1;
+
+	/** The small queue, oldest first. */
+	private final IntLinkedSet small = new IntLinkedSet();
+
+	/** The main queue, oldest first. */
+	private final IntLinkedSet main = new IntLinkedSet();
+
+	/** The ids recently evicted from the small queue, oldest first. */
+	private final IntLinkedSet ghost = new IntLinkedSet();
+
+	/** The use counts of the entries. */
+	private final IntIntMap frequencies = new IntIntMap(-1);
+
+	/** The maximum number of entries of the small queue. */
+	private final int smallCapacity;
+
+	/** The maximum total length of the small queue. */
+	private final long smallCapacityBytes;
+
+	/**
+	 * Creates a new CachePolicyS3Fifo.
+	 *
+	 * @param capacity the maximum number of entries
+	 * @param capacityBytes the maximum total length of the entries
+	 */
+	public CachePolicyS3Fifo(int capacity, long capacityBytes) {
+		super(capacity, capacityBytes);
+		smallCapacity = capacityShare(SMALL_SHARE);
+		smallCapacityBytes = capacityBytesShare(SMALL_SHARE);
+	}
+
+	@Override
+	public void hit(int id) {
+		int frequency = frequencies.get(id);
+		if (frequency >= 0 && frequency < MAX_FREQUENCY) {
+			frequencies.put(id, frequency + 1);
+		}
+	}
+
+	@Override
+	public void insert(int id, int length) {
+		if (frequencies.containsKey(id)) {
+			return;
+		}
+		if (ghost.remove(id)) {
+			main.addLast(id, length);
+		} else {
+			small.addLast(id, length);
+		}
+		frequencies.put(id, 0);
+
+		// the ghost queue remembers as many ids as the main queue holds
+		int ghostCapacity = getCapacity() == Integer.MAX_VALUE
+				? Math.max(1, main.size())
+				: getCapacity() - smallCapacity;
+		while (ghost.size() > ghostCapacity) {
+			ghost.removeFirst();
+		}
+	}
+
+	@Override
+	public int evict() {
+		while (true) {
+			if (!small.isEmpty()
+					&& (main.isEmpty() || small.size() >= smallCapacity || small.getWeight() >= smallCapacityBytes)) {
+				int id = small.first();
+				if (frequencies.get(id) > 1) {
+					int length = small.weightOf(id);
+					small.remove(id);
+					main.addLast(id, length);
+					frequencies.put(id, 0);
+				} else {
+					small.remove(id);
+					frequencies.remove(id);
+					ghost.addLast(id, 0);
+					return id;
+				}
+			} else {
+				int id = main.first();
+				int frequency = frequencies.get(id);
+				if (frequency > 0) {
+					frequencies.put(id, frequency - 1);
+					main.moveToLast(id);
+				} else {
+					main.remove(id);
+					frequencies.remove(id);
+					return id;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return small.size() + main.size();
+	}
+
+	@Override
+	public long getWeight() {
+		return small.getWeight() + main.getWeight();
+	}
+
+}
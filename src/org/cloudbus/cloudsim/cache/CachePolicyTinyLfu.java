@@ -0,0 +1,155 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+import org.cloudbus.cloudsim.util.IntLinkedSet;
+
+/**
+ * CachePolicyTinyLfu implements W-TinyLFU of Einziger et al. New entries go to an LRU window
+ * holding 1% of the capacity. The rest is a segmented LRU: the entries leaving the window go to
+ * its probation segment and move to its protected segment, 80% of it, when used again. When the
+ * cache is full, the last entry that left the window and the next victim of the segmented LRU are
+ * compared, and the one a {@link CountMinSketch} of the recent uses estimates to be used less
+ * often is evicted.
+ *
+ * @author Atakan
+ */
+public class CachePolicyTinyLfu extends CachePolicy {
+
+	/** The share of the capacity of the window. */
+	private static final double WINDOW_SHARE = 0.01;
+
+	/** The share of the capacity of the protected segment. */
+	private static final double PROTECTED_SHARE = 0.99 * 0.8;
+
+	/** The number of data objects tracked by the sketch when the capacity has no limit. */
+	private static final int DEFAULT_SKETCH_ENTRIES = 1 << 16;
+
+	/** The window, least recently used first. */
+	private final IntLinkedSet window = new IntLinkedSet();
+
+	/** The probation segment, least recently used first. */
+	private final IntLinkedSet probation = new IntLinkedSet();
+
+	/** The protected segment, least recently used first. */
+	private final IntLinkedSet protectedSegment = new IntLinkedSet();
+
+	/** The recent use counts. */
+	private final CountMinSketch sketch;
+
+	/** The maximum number of entries of the window. */
+	private final int windowCapacity;
+
+	/** The maximum total length of the window. */
+	private final long windowCapacityBytes;
+
+	/** The maximum number of entries of the protected segment. */
+	private final int protectedCapacity;
+
+	/** The maximum total length of the protected segment. */
+	private final long protectedCapacityBytes;
+
+	/** The last entry that left the window, if it has not been compared yet. */
+	private int candidate;
+
+	/** Whether there is a candidate. */
+	private boolean hasCandidate = false;
+
+	/**
+	 * Creates a new CachePolicyTinyLfu.
+	 *
+	 * @param capacity the maximum number of entries
+	 * @param capacityBytes the maximum total length of the entries
+	 */
+	public CachePolicyTinyLfu(int capacity, long capacityBytes) {
+		super(capacity, capacityBytes);
+		windowCapacity = capacityShare(WINDOW_SHARE);
+		windowCapacityBytes = capacityBytesShare(WINDOW_SHARE);
+		protectedCapacity = capacityShare(PROTECTED_SHARE);
+		protectedCapacityBytes = capacityBytesShare(PROTECTED_SHARE);
+		sketch = new CountMinSketch(capacity == Integer.MAX_VALUE ? DEFAULT_SKETCH_ENTRIES : capacity);
+	}
+
+	@Override
+	public boolean admit(int id, int length) {
+		if (!super.admit(id, length)) {
+			return false;
+		}
+		sketch.increment(id);
+		return true;
+	}
+
+	@Override
+	public void hit(int id) {
+		sketch.increment(id);
+		if (window.moveToLast(id) || protectedSegment.moveToLast(id)) {
+			return;
+		}
+		int length = probation.weightOf(id);
+		if (length >= 0) {
+			probation.remove(id);
+			protectedSegment.addLast(id, length);
+			while (protectedSegment.size() > 1
+					&& (protectedSegment.size() > protectedCapacity || protectedSegment.getWeight() > protectedCapacityBytes)) {
+				int demoted = protectedSegment.first();
+				probation.addLast(demoted, protectedSegment.weightOf(demoted));
+				protectedSegment.remove(demoted);
+			}
+		}
+	}
+
+	@Override
+	public void insert(int id, int length) {
+		window.addLast(id, length);
+		while (window.size() > 1 && (window.size() > windowCapacity || window.getWeight() > windowCapacityBytes)) {
+			candidate = window.first();
+			hasCandidate = true;
+			probation.addLast(candidate, window.weightOf(candidate));
+			window.remove(candidate);
+		}
+	}
+
+	@Override
+	public int evict() {
+		if (probation.isEmpty() && protectedSegment.isEmpty()) {
+			return window.removeFirst();
+		}
+		int victim = mainVictim();
+		if (hasCandidate && candidate != victim && probation.contains(candidate)) {
+			hasCandidate = false;
+			if (sketch.frequency(candidate) <= sketch.frequency(victim)) {
+				victim = candidate;
+			}
+		}
+		probation.remove(victim);
+		protectedSegment.remove(victim);
+		return victim;
+	}
+
+	@Override
+	public int size() {
+		return window.size() + probation.size() + protectedSegment.size();
+	}
+
+	@Override
+	public long getWeight() {
+		return window.getWeight() + probation.getWeight() + protectedSegment.getWeight();
+	}
+
+	/**
+	 * Gets the next victim of the segmented LRU.
+	 *
+	 * @return the least recently used entry of the probation segment, or of the protected one if
+	 *         the probation segment is empty
+	 */
+	private int mainVictim() {
+		return probation.isEmpty() ? protectedSegment.first() : probation.first();
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.cache;
+
+/**
+ * CountMinSketch estimates the recent use counts of data objects in a fixed amount of memory. Each
+ * use increments one small counter per row and the estimate is the smallest of them, so it may
+ * only overestimate a count. The counters saturate at 15 and are halved after a number of uses
+ * proportional to the width, so that old uses fade out.
+ *
+ * @author Atakan
+ */
+public class CountMinSketch {
+
+	/** The number of rows. */
+	private static final int DEPTH = 4;
+
+	/** The maximum value of a counter. */
+	private static final int MAX_COUNT = 15;
+
+	/** The seeds of the row hashes. */
+	private static final int[] SEEDS = { 0x97CB3127, 0xB1F2B4F1, 0x8F7B1E8D, 0xC2B2AE35 };
+
+	/** The counters, row after row. */
+	private final byte[] counters;
+
+	/** The mask of the column of a hash. */
+	private final int mask;
+
+	/** The number of uses after which the counters are halved. */
+	private final int sampleSize;
+
+	/** The number of uses since the last halving. */
+	private int additions = 0;
+
+	/**
+	 * Creates a new CountMinSketch.
+	 *
+	 * @param expectedEntries the number of data objects expected to be tracked
+	 */
+	public CountMinSketch(int expectedEntries) {
+		int width = Integer.highestOneBit(Math.max(16, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+		counters = new byte[DEPTH * width];
+		mask = width - 1;
+		sampleSize = 10 * width;
+	}
+
+	/**
+	 * Records a use of a data object.
+	 *
+	 * @param id the data object id
+	 */
+	public void increment(int id) {
+		for (int row = 0; row < DEPTH; row++) {
+			int i = index(id, row);
+			if (counters[i] < MAX_COUNT) {
+				counters[i]++;
+			}
+		}
+		if (++additions >= sampleSize) {
+			for (int i = 0; i < counters.length; i++) {
+				counters[i] >>= 1;
+			}
+			additions /= 2;
+		}
+	}
+
+	/**
+	 * Estimates the recent use count of a data object.
+	 *
+	 * @param id the data object id
+	 * @return the estimated count, between 0 and 15
+	 */
+	public int frequency(int id) {
+		int frequency = MAX_COUNT;
+		for (int row = 0; row < DEPTH; row++) {
+			frequency = Math.min(frequency, counters[index(id, row)]);
+		}
+		return frequency;
+	}
+
+	private int index(int id, int row) {
+		int h = (id ^ SEEDS[row]) * 0x9E3779B9;
+		h ^= h >>> 16;
+		return row * (mask + 1) + (h & mask);
+	}
+
+}
@@ -0,0 +1,378 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements the future event queue as a calendar queue (R. Brown, "Calendar Queues: A
+ * Fast O(1) Priority Queue Implementation for the Simulation Event Set Problem", CACM 1988). The
+ * events are hashed by time into buckets of a fixed width; each bucket keeps its events in a sorted
+ * list. The number of buckets follows the size of the queue and the bucket width is re-estimated
+ * from the events at the head of the queue whenever the calendar is resized, so that adding and
+ * polling take constant time on average.
+ * <p>
+ * The ordering is the same as {@link FutureQueue}: time, then serial, then insertion order.
+ *
+ * @author Atakan
+ * @see EventQueue
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	/** The minimum number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of head events sampled to estimate the bucket width. */
+	private static final int WIDTH_SAMPLES = 32;
+
+	/** The buckets, each one a sorted list. The length is a power of two. */
+	private Node[] buckets;
+
+	/** The mask used to map virtual buckets to buckets. */
+	private int mask;
+
+	/** The time span covered by a bucket. */
+	private double width;
+
+	/** The virtual bucket (time / width) holding the first event. */
+	private long current = 0;
+
+	/** The number of events per tag. */
+	private final TagCounter tagCounter = new TagCounter();
+
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The insertion stamp. */
+	private long stamp = 0;
+
+	/**
+	 * Creates a calendar queue with a bucket width of one time unit.
+	 */
+	public CalendarEventQueue() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates a calendar queue.
+	 *
+	 * @param width the initial bucket width, adjusted as the queue grows or shrinks
+	 */
+	public CalendarEventQueue(double width) {
+		if (width <= 0 || Double.isInfinite(width) || Double.isNaN(width)) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is: " + width);
+		}
+		this.width = width;
+		buckets = new Node[MIN_BUCKETS];
+		mask = MIN_BUCKETS - 1;
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(new Node(newEvent, stamp++));
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(new Node(newEvent, stamp++));
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (size == 0) {
+			return null;
+		}
+		return buckets[findFirst()].event;
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		int index = findFirst();
+		Node first = buckets[index];
+		buckets[index] = first.next;
+		size--;
+		tagCounter.remove(first.event);
+		if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) {
+			resize(buckets.length / 2);
+		}
+		return first.event;
+	}
+
+	/**
+	 * Returns an iterator to the queue. The events are returned bucket by bucket and the iterator
+	 * does not support removal.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int bucket = -1;
+
+			private Node next = advance(null);
+
+			private Node advance(Node node) {
+				if (node != null && node.next != null) {
+					return node.next;
+				}
+				while (++bucket < buckets.length) {
+					if (buckets[bucket] != null) {
+						return buckets[bucket];
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Node node = next;
+				next = advance(node);
+				return node.event;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int countTag(int tag) {
+		return tagCounter.count(tag);
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int index = (int) (bucketOf(event.eventTime()) & mask);
+		Node previous = null;
+		for (Node node = buckets[index]; node != null; node = node.next) {
+			if (node.event == event) {
+				if (previous == null) {
+					buckets[index] = node.next;
+				} else {
+					previous.next = node.next;
+				}
+				size--;
+				tagCounter.remove(event);
+				return true;
+			}
+			previous = node;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(buckets, null);
+		size = 0;
+		tagCounter.clear();
+		current = 0;
+	}
+
+	/**
+	 * Gets the virtual bucket of a given time.
+	 *
+	 * @param time the time
+	 * @return the virtual bucket
+	 */
+	private long bucketOf(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Inserts a node into its bucket, keeping the bucket sorted.
+	 *
+	 * @param node the node
+	 */
+	private void insert(Node node) {
+		long virtual = bucketOf(node.time);
+		if (size == 0 || virtual < current) {
+			current = virtual;
+		}
+		link(node, (int) (virtual & mask));
+		size++;
+		tagCounter.add(node.event);
+		if (size > buckets.length * 2) {
+			resize(buckets.length * 2);
+		}
+	}
+
+	private void link(Node node, int index) {
+		Node head = buckets[index];
+		if (head == null || node.before(head)) {
+			node.next = head;
+			buckets[index] = node;
+			return;
+		}
+		Node previous = head;
+		while (previous.next != null && !node.before(previous.next)) {
+			previous = previous.next;
+		}
+		node.next = previous.next;
+		previous.next = node;
+	}
+
+	/**
+	 * Finds the bucket whose head is the first event of the queue and moves the current virtual
+	 * bucket to it. The queue must not be empty.
+	 *
+	 * @return the index of the bucket
+	 */
+	private int findFirst() {
+		// scan one year of the calendar
+		for (int i = 0; i < buckets.length; i++) {
+			long virtual = current + i;
+			Node head = buckets[(int) (virtual & mask)];
+			if (head != null && bucketOf(head.time) == virtual) {
+				current = virtual;
+				return (int) (virtual & mask);
+			}
+		}
+
+		// the events are sparse, fall back to a direct search over the heads
+		Node min = null;
+		for (Node head : buckets) {
+			if (head != null && (min == null || head.before(min))) {
+				min = head;
+			}
+		}
+		current = bucketOf(min.time);
+		return (int) (current & mask);
+	}
+
+	/**
+	 * Rebuilds the calendar with a new number of buckets and a bucket width estimated from the
+	 * average separation of the events at the head of the queue.
+	 *
+	 * @param bucketCount the new number of buckets, a power of two
+	 */
+	private void resize(int bucketCount) {
+		Node[] old = buckets;
+		width = estimateWidth();
+		buckets = new Node[bucketCount];
+		mask = bucketCount - 1;
+
+		Node min = null;
+		for (Node head : old) {
+			Node node = head;
+			while (node != null) {
+				Node next = node.next;
+				link(node, (int) (bucketOf(node.time) & mask));
+				if (min == null || node.before(min)) {
+					min = node;
+				}
+				node = next;
+			}
+		}
+		current = min == null ? 0 : bucketOf(min.time);
+	}
+
+	/**
+	 * Estimates the bucket width as three times the average separation of the distinct event times
+	 * at the head of the queue, ignoring separations larger than twice the average.
+	 *
+	 * @return the new bucket width
+	 */
+	private double estimateWidth() {
+		int samples = Math.min(size, WIDTH_SAMPLES);
+		if (samples < 2) {
+			return width;
+		}
+
+		// the head events are found by repeatedly polling, then they are put back
+		Node[] head = new Node[samples];
+		for (int i = 0; i < samples; i++) {
+			int index = findFirst();
+			head[i] = buckets[index];
+			buckets[index] = head[i].next;
+		}
+		for (Node node : head) {
+			link(node, (int) (bucketOf(node.time) & mask));
+		}
+
+		double total = head[samples - 1].time - head[0].time;
+		if (total <= 0) {
+			return width;
+		}
+		double average = total / (samples - 1);
+		double separation = 0;
+		int count = 0;
+		for (int i = 1; i < samples; i++) {
+			double gap = head[i].time - head[i - 1].time;
+			if (gap > 0 && gap <= 2 * average) {
+				separation += gap;
+				count++;
+			}
+		}
+		return count == 0 ? width : 3 * separation / count;
+	}
+
+	/**
+	 * A node of a bucket list.
+	 */
+	private static final class Node {
+
+		private final SimEvent event;
+
+		private final double time;
+
+		private final long stamp;
+
+		private Node next;
+
+		Node(SimEvent event, long stamp) {
+			this.event = event;
+			time = event.eventTime();
+			this.stamp = stamp;
+		}
+
+		boolean before(Node other) {
+			if (time != other.time) {
+				return time < other.time;
+			}
+			long serial = event.getSerial();
+			long otherSerial = other.event.getSerial();
+			if (serial != otherSerial) {
+				return serial < otherSerial;
+			}
+			return stamp < other.stamp;
+		}
+	}
+
+}
@@ -8,15 +8,16 @@
 package org.cloudbus.cloudsim.core;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.cache.CachePolicy;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
@@ -29,6 +30,10 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * such file are mapped to CloudSim entities. Delay calculated from the BRITE
  * model are added to the messages send through CloudSim. Messages using the old
  * model are converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The state of the simulation is held by the {@link SimulationContext} of the
+ * calling thread, so simulations running in different threads do not share
+ * their clock, queues or entities.
  *
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -37,95 +42,125 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
 public class CloudSim {
     
     //ATAKAN: User defined aggression parameter
-    private static double aggression;
-
     public static void setAggression(double aggression) {
-        CloudSim.aggression = aggression;
+        context().aggression = aggression;
     }
 
     public static double getAggression() {
-        return aggression;
+        return context().aggression;
     }
     
     //ATAKAN: Period of cache operation checks
-    private static double cacheQuantum;
-
     public static void setCacheQuantum(double cacheQuantum) {
-        CloudSim.cacheQuantum = cacheQuantum;
+        context().cacheQuantum = cacheQuantum;
     }
 
     public static double getCacheQuantum() {
-        return cacheQuantum;
+        return context().cacheQuantum;
     }
     
     //ATAKAN: If baseline method cache is enabled. Note that aggression should be set to 0.
-    private static boolean cacheEnabled = false;
-    private static int cacheLength;
-
     public static boolean isCacheEnabled() {
-        return cacheEnabled;
+        return context().cacheEnabled;
     }
 
     public static void enableCache(int length) {
-        cacheEnabled = true;
-        cacheLength = length;
+        enableCache(length, Long.MAX_VALUE);
+    }
+
+    //ATAKAN: Cache capacity as the total length of the cached data objects.
+    public static void enableCacheBytes(long bytes) {
+        enableCache(Integer.MAX_VALUE, bytes);
+    }
+
+    public static void enableCache(int length, long bytes) {
+        if (length < 0 || bytes < 0) {
+            throw new IllegalArgumentException("The cache capacity should not be negative.");
+        }
+        SimulationContext context = context();
+        context.cacheEnabled = true;
+        context.cacheLength = length;
+        context.cacheBytes = bytes;
     }
     
     public static int getCacheLength(){
-        return cacheLength;
+        return context().cacheLength;
     }
-    
-    //ATAKAN: Could be converted to messaging but it would make no difference in terms of performance as long as costs are static.
-    public static HashMap<Integer, Double> storageCosts = new HashMap<>();
-    public static HashMap<Integer, Double> bandwidthCosts = new HashMap<>();
 
-    /**
-     * The Constant CLOUDSIM_VERSION_STRING.
-     */
-    private static final String CLOUDSIM_VERSION_STRING = "3.0";
+    public static long getCacheBytes() {
+        return context().cacheBytes;
+    }
 
-    /**
-     * The id of CIS entity.
-     */
-    private static int cisId = -1;
+    //ATAKAN: Replacement policy of the baseline cache.
+    public static void setCachePolicy(CachePolicy.Type policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("The cache policy should not be null.");
+        }
+        context().cachePolicy = policy;
+    }
 
-    /**
-     * The id of CloudSimShutdown entity.
-     */
-    @SuppressWarnings("unused")
-    private static int shutdownId = -1;
+    public static CachePolicy.Type getCachePolicy() {
+        return context().cachePolicy;
+    }
 
-    /**
-     * The CIS object.
-     */
-    private static CloudInformationService cis = null;
+    //ATAKAN: Estimate the demand as the average of the last quanta instead of the last quantum only.
+    public static void setDemandWindow(int quanta) {
+        if (quanta < 1) {
+            throw new IllegalArgumentException("The demand window should be at least one quantum.");
+        }
+        SimulationContext context = context();
+        context.demandWindows = quanta;
+        context.demandDecay = 0;
+    }
 
-    /**
-     * The Constant NOT_FOUND.
-     */
-    private static final int NOT_FOUND = -1;
+    public static int getDemandWindow() {
+        return context().demandWindows;
+    }
 
-    /**
-     * The trace flag.
-     */
-    @SuppressWarnings("unused")
-    private static boolean traceFlag = false;
+    //ATAKAN: Estimate the demand as an exponentially weighted average, keeping this share of the past demand at each quantum.
+    public static void setDemandDecay(double decay) {
+        if (decay < 0 || decay >= 1) {
+            throw new IllegalArgumentException("The demand decay should be in [0, 1).");
+        }
+        SimulationContext context = context();
+        context.demandDecay = decay;
+        context.demandWindows = 1;
+    }
 
-    /**
-     * The calendar.
-     */
-    private static Calendar calendar = null;
+    public static double getDemandDecay() {
+        return context().demandDecay;
+    }
+
+    //ATAKAN: Request the data needed at a position of a cloudlet this many MI before the cloudlet reaches it, so that the transfer overlaps with the execution.
+    public static void setPrefetchLead(long lead) {
+        if (lead < 0) {
+            throw new IllegalArgumentException("The prefetch lead should not be negative.");
+        }
+        context().prefetchLead = lead;
+    }
+
+    public static long getPrefetchLead() {
+        return context().prefetchLead;
+    }
+    
+    //ATAKAN: Could be converted to messaging but it would make no difference in terms of performance as long as costs are static.
+    public static HashMap<Integer, Double> getStorageCosts() {
+        return context().storageCosts;
+    }
+
+    public static HashMap<Integer, Double> getBandwidthCosts() {
+        return context().bandwidthCosts;
+    }
 
     /**
-     * The termination time.
+     * The Constant CLOUDSIM_VERSION_STRING.
      */
-    private static double terminateAt = -1;
+    private static final String CLOUDSIM_VERSION_STRING = "3.0";
 
     /**
-     * The minimal time between events. Events within shorter periods after the
-     * last event are discarded.
+     * The Constant NOT_FOUND.
      */
-    private static double minTimeBetweenEvents = 0.1;
+    private static final int NOT_FOUND = -1;
 
     /**
      * Initialises all the common attributes.
@@ -141,21 +176,22 @@ public class CloudSim {
      */
     private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
             throws Exception {
+        SimulationContext context = context();
         initialize();
         // NOTE: the order for the below 3 lines are important
-        traceFlag = _traceFlag;
+        context.traceFlag = _traceFlag;
 
         // Set the current Wall clock time as the starting time of
         // simulation
         if (_calendar == null) {
-            calendar = Calendar.getInstance();
+            context.calendar = Calendar.getInstance();
         } else {
-            calendar = _calendar;
+            context.calendar = _calendar;
         }
 
         // creates a CloudSimShutdown object
         CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-        shutdownId = shutdown.getId();
+        context.shutdownId = shutdown.getId();
     }
 
     /**
@@ -182,14 +218,15 @@ public class CloudSim {
      * @post $none
      */
     public static void init(int numUser, Calendar cal, boolean traceFlag) {
+        SimulationContext context = context();
         try {
             initCommonVariable(cal, traceFlag, numUser);
 
             // create a GIS object
-            cis = new CloudInformationService("CloudInformationService");
+            context.cis = new CloudInformationService("CloudInformationService");
 
             // set all the above entity IDs
-            cisId = cis.getId();
+            context.cisId = context.cis.getId();
         } catch (IllegalArgumentException s) {
             Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
             Log.printLine(s.getMessage());
@@ -230,7 +267,30 @@ public class CloudSim {
         }
 
         init(numUser, cal, traceFlag);
-        minTimeBetweenEvents = periodBetweenEvents;
+        context().minTimeBetweenEvents = periodBetweenEvents;
+    }
+
+    /**
+     * Initialises CloudSim parameters with a given future event queue. This
+     * method should be called before creating any entities.
+     *
+     * @param numUser the number of User Entities created
+     * @param cal starting time for this simulation. If it is <tt>null</tt>,
+     * then the time will be taken from <tt>Calendar.getInstance()</tt>
+     * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+     * @param futureQueue the empty queue that will hold the future events,
+     * e.g. a {@link HeapEventQueue} or a {@link CalendarEventQueue}
+     * @see #init(int, Calendar, boolean)
+     * @pre numUser >= 0
+     * @post $none
+     */
+    public static void init(int numUser, Calendar cal, boolean traceFlag, EventQueue futureQueue) {
+        if (futureQueue == null || futureQueue.size() > 0) {
+            throw new IllegalArgumentException("The future event queue should be empty and not null.");
+        }
+
+        init(numUser, cal, traceFlag);
+        context().future = futureQueue;
     }
 
     /**
@@ -250,16 +310,17 @@ public class CloudSim {
      * @post $none
      */
     public static double startSimulation() throws NullPointerException {
+        SimulationContext context = context();
         Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
         try {
             double clock = run();
 
             // reset all static variables
-            cisId = -1;
-            shutdownId = -1;
-            cis = null;
-            calendar = null;
-            traceFlag = false;
+            context.cisId = -1;
+            context.shutdownId = -1;
+            context.cis = null;
+            context.calendar = null;
+            context.traceFlag = false;
 
             return clock;
         } catch (IllegalArgumentException e) {
@@ -297,7 +358,7 @@ public class CloudSim {
      * @return true, if successful; false otherwise.
      */
     public static boolean terminateSimulation() {
-        running = false;
+        context().running = false;
         printMessage("Simulation: Reached termination time.");
         return true;
     }
@@ -310,10 +371,11 @@ public class CloudSim {
      * @return true, if successful otherwise.
      */
     public static boolean terminateSimulation(double time) {
-        if (time <= clock) {
+        SimulationContext context = context();
+        if (time <= context.clock) {
             return false;
         } else {
-            terminateAt = time;
+            context.terminateAt = time;
         }
         return true;
     }
@@ -325,7 +387,7 @@ public class CloudSim {
      * @return the minimum time between events.
      */
     public static double getMinTimeBetweenEvents() {
-        return minTimeBetweenEvents;
+        return context().minTimeBetweenEvents;
     }
 
     /**
@@ -340,10 +402,11 @@ public class CloudSim {
      * @post $none
      */
     public static Calendar getSimulationCalendar() {
+        SimulationContext context = context();
         // make a new copy
-        Calendar clone = calendar;
-        if (calendar != null) {
-            clone = (Calendar) calendar.clone();
+        Calendar clone = context.calendar;
+        if (context.calendar != null) {
+            clone = (Calendar) context.calendar.clone();
         }
 
         return clone;
@@ -357,7 +420,7 @@ public class CloudSim {
      * @post $result >= -1
      */
     public static int getCloudInfoServiceEntityId() {
-        return cisId;
+        return context().cisId;
     }
 
     /**
@@ -370,78 +433,31 @@ public class CloudSim {
      * @post $none
      */
     public static List<Integer> getCloudResourceList() {
-        if (cis == null) {
+        SimulationContext context = context();
+        if (context.cis == null) {
             return null;
         }
 
-        return cis.getList();
+        return context.cis.getList();
     }
 
     // ======== SIMULATION METHODS ===============//
-    /**
-     * The entities.
-     */
-    private static List<SimEntity> entities;
-
-    /**
-     * The future event queue.
-     */
-    protected static FutureQueue future;
-
-    /**
-     * The deferred event queue.
-     */
-    protected static DeferredQueue deferred;
-
-    /**
-     * The simulation clock.
-     */
-    private static double clock;
-
-    /**
-     * Flag for checking if the simulation is running.
-     */
-    private static boolean running;
-
-    /**
-     * The entities by name.
-     */
-    private static Map<String, SimEntity> entitiesByName;
-
-    // The predicates used in entity wait methods
-    /**
-     * The wait predicates.
-     */
-    private static Map<Integer, Predicate> waitPredicates;
-
-    /**
-     * The paused.
-     */
-    private static boolean paused = false;
-
-    /**
-     * The pause at.
-     */
-    private static long pauseAt = -1;
-
-    /**
-     * The abrupt terminate.
-     */
-    private static boolean abruptTerminate = false;
 
     /**
      * Initialise the simulation for stand alone simulations. This function
      * should be called at the start of the simulation.
      */
     protected static void initialize() {
+        SimulationContext context = context();
         Log.printLine("Initialising...");
-        entities = new ArrayList<SimEntity>();
-        entitiesByName = new LinkedHashMap<String, SimEntity>();
-        future = new FutureQueue();
-        deferred = new DeferredQueue();
-        waitPredicates = new HashMap<Integer, Predicate>();
-        clock = 0;
-        running = false;
+        context.entities = new ArrayList<SimEntity>();
+        context.entitiesByName = new LinkedHashMap<String, SimEntity>();
+        context.future = new FutureQueue();
+        context.deferred = new DeferredQueue();
+        context.readyEntities = new BitSet();
+        context.waitPredicates = new HashMap<Integer, Predicate>();
+        context.clock = 0;
+        context.running = false;
     }
 
     // The two standard predicates
@@ -462,7 +478,7 @@ public class CloudSim {
      * @return the simulation time
      */
     public static double clock() {
-        return clock;
+        return context().clock;
     }
 
     /**
@@ -471,7 +487,7 @@ public class CloudSim {
      * @return The number of entities
      */
     public static int getNumEntities() {
-        return entities.size();
+        return context().entities.size();
     }
 
     /**
@@ -481,7 +497,7 @@ public class CloudSim {
      * @return The entity, or if it could not be found
      */
     public static SimEntity getEntity(int id) {
-        return entities.get(id);
+        return context().entities.get(id);
     }
 
     /**
@@ -491,7 +507,7 @@ public class CloudSim {
      * @return The entity
      */
     public static SimEntity getEntity(String name) {
-        return entitiesByName.get(name);
+        return context().entitiesByName.get(name);
     }
 
     /**
@@ -501,7 +517,7 @@ public class CloudSim {
      * @return The entity's unique id number
      */
     public static int getEntityId(String name) {
-        SimEntity obj = entitiesByName.get(name);
+        SimEntity obj = context().entitiesByName.get(name);
         if (obj == null) {
             return NOT_FOUND;
         } else {
@@ -551,7 +567,7 @@ public class CloudSim {
         // create a new list to prevent the user from changing
         // the list of entities used by Simulation
         List<SimEntity> list = new LinkedList<SimEntity>();
-        list.addAll(entities);
+        list.addAll(context().entities);
         return list;
     }
 
@@ -564,17 +580,18 @@ public class CloudSim {
      * @param e The new entity
      */
     public static void addEntity(SimEntity e) {
+        SimulationContext context = context();
         SimEvent evt;
-        if (running) {
+        if (context.running) {
             // Post an event to make this entity
-            evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-            future.addEvent(evt);
+            evt = new SimEvent(SimEvent.CREATE, context.clock, 1, 0, 0, e);
+            context.future.addEvent(evt);
         }
         if (e.getId() == -1) { // Only add once!
-            int id = entities.size();
+            int id = context.entities.size();
             e.setId(id);
-            entities.add(e);
-            entitiesByName.put(e.getName(), e);
+            context.entities.add(e);
+            context.entitiesByName.put(e.getName(), e);
         }
     }
 
@@ -601,62 +618,43 @@ public class CloudSim {
      * @return true, if successful otherwise
      */
     public static boolean runClockTick() {
+        SimulationContext context = context();
         SimEntity ent;
         boolean queue_empty;
 
-        int entities_size = entities.size();
-
-        for (int i = 0; i < entities_size; i++) {
-            ent = entities.get(i);
+        // Only the entities marked as ready can have events to process, the
+        // others would return from run() straight away
+        for (int i = context.readyEntities.nextSetBit(0); i >= 0; i = context.readyEntities.nextSetBit(i + 1)) {
+            context.readyEntities.clear(i);
+            ent = context.entities.get(i);
             if (ent.getState() == SimEntity.RUNNABLE) {
                 ent.run();
             }
         }
 
         // If there are more future events then deal with them
-        if (future.size() > 0) {
+        if (context.future.size() > 0) {
             // ATAKAN: Check if all remaining events are cache operations
-            boolean allCache = true;
-            Iterator<SimEvent> fcit = future.iterator();
-            while (fcit.hasNext()) {
-                SimEvent next = fcit.next();
-                if (next.getTag() != CloudSimTags.CHECK_DEMAND_FOR_CACHES) {
-                    allCache = false;
-                    break;
-                }
-            }
+            boolean allCache = context.future.countTag(CloudSimTags.CHECK_DEMAND_FOR_CACHES) == context.future.size();
             if(allCache || CloudSim.clock()>1000000){ //Same as else
-                running = false;
+                context.running = false;
                 printMessage(CloudSim.clock() + " Simulation: No more future events (except cache operations)");
                 return true;
             }
 
-            List<SimEvent> toRemove = new ArrayList<SimEvent>();
-            Iterator<SimEvent> fit = future.iterator();
             queue_empty = false;
-            SimEvent first = fit.next();
+            SimEvent first = context.future.poll();
             processEvent(first);
-            future.remove(first);
-
-            fit = future.iterator();
 
             // Check if next events are at same time...
-            boolean trymore = fit.hasNext();
-            while (trymore) {
-                SimEvent next = fit.next();
-                if (next.eventTime() == first.eventTime()) {
-                    processEvent(next);
-                    toRemove.add(next);
-                    trymore = fit.hasNext();
-                } else {
-                    trymore = false;
-                }
+            SimEvent next = context.future.peek();
+            while (next != null && next.eventTime() == first.eventTime()) {
+                processEvent(context.future.poll());
+                next = context.future.peek();
             }
-
-            future.removeAll(toRemove);
         } else {
             queue_empty = true;
-            running = false;
+            context.running = false;
             printMessage(CloudSim.clock() + " Simulation: No more future events");
         }
 
@@ -678,9 +676,10 @@ public class CloudSim {
      * @param delay the delay
      */
     public static void hold(int src, long delay) {
-        SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-        future.addEvent(e);
-        entities.get(src).setState(SimEntity.HOLDING);
+        SimulationContext context = context();
+        SimEvent e = new SimEvent(SimEvent.HOLD_DONE, context.clock + delay, src);
+        context.future.addEvent(e);
+        context.entities.get(src).setState(SimEntity.HOLDING);
     }
 
     /**
@@ -690,9 +689,10 @@ public class CloudSim {
      * @param delay the delay
      */
     public static void pause(int src, double delay) {
-        SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-        future.addEvent(e);
-        entities.get(src).setState(SimEntity.HOLDING);
+        SimulationContext context = context();
+        SimEvent e = new SimEvent(SimEvent.HOLD_DONE, context.clock + delay, src);
+        context.future.addEvent(e);
+        context.entities.get(src).setState(SimEntity.HOLDING);
     }
 
     /**
@@ -705,13 +705,14 @@ public class CloudSim {
      * @param data the data
      */
     public static void send(int src, int dest, double delay, int tag, Object data) {
+        SimulationContext context = context();
         if (delay < 0) {
             throw new IllegalArgumentException("Send delay can't be negative.");
         }
 
-        SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+        SimEvent e = new SimEvent(SimEvent.SEND, context.clock + delay, src, dest, tag, data);
         e.CustomtoString("CloudSim");
-        future.addEvent(e);
+        context.future.addEvent(e);
     }
 
     /**
@@ -725,12 +726,13 @@ public class CloudSim {
      * @param data the data
      */
     public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
+        SimulationContext context = context();
         if (delay < 0) {
             throw new IllegalArgumentException("Send delay can't be negative.");
         }
 
-        SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-        future.addEventFirst(e);
+        SimEvent e = new SimEvent(SimEvent.SEND, context.clock + delay, src, dest, tag, data);
+        context.future.addEventFirst(e);
     }
 
     /**
@@ -743,10 +745,11 @@ public class CloudSim {
      * @param p the p
      */
     public static void wait(int src, Predicate p) {
-        entities.get(src).setState(SimEntity.WAITING);
+        SimulationContext context = context();
+        context.entities.get(src).setState(SimEntity.WAITING);
         if (p != SIM_ANY) {
             // If a predicate has been used store it in order to check it
-            waitPredicates.put(src, p);
+            context.waitPredicates.put(src, p);
         }
     }
 
@@ -759,16 +762,7 @@ public class CloudSim {
      * @return the int
      */
     public static int waiting(int d, Predicate p) {
-        int count = 0;
-        SimEvent event;
-        Iterator<SimEvent> iterator = deferred.iterator();
-        while (iterator.hasNext()) {
-            event = iterator.next();
-            if ((event.getDestination() == d) && (p.match(event))) {
-                count++;
-            }
-        }
-        return count;
+        return context().deferred.count(d, p);
     }
 
     /**
@@ -776,19 +770,10 @@ public class CloudSim {
      *
      * @param src the src
      * @param p the p
-     * @return the sim event
+     * @return the sim event or <tt>null</tt> if none matches
      */
     public static SimEvent select(int src, Predicate p) {
-        SimEvent ev = null;
-        Iterator<SimEvent> iterator = deferred.iterator();
-        while (iterator.hasNext()) {
-            ev = iterator.next();
-            if (ev.getDestination() == src && p.match(ev)) {
-                iterator.remove();
-                break;
-            }
-        }
-        return ev;
+        return context().deferred.select(src, p);
     }
 
     /**
@@ -796,18 +781,10 @@ public class CloudSim {
      *
      * @param src the src
      * @param p the p
-     * @return the sim event
+     * @return the sim event or <tt>null</tt> if none matches
      */
     public static SimEvent findFirstDeferred(int src, Predicate p) {
-        SimEvent ev = null;
-        Iterator<SimEvent> iterator = deferred.iterator();
-        while (iterator.hasNext()) {
-            ev = iterator.next();
-            if (ev.getDestination() == src && p.match(ev)) {
-                break;
-            }
-        }
-        return ev;
+        return context().deferred.findFirst(src, p);
     }
 
     /**
@@ -818,15 +795,18 @@ public class CloudSim {
      * @return the sim event
      */
     public static SimEvent cancel(int src, Predicate p) {
+        SimulationContext context = context();
         SimEvent ev = null;
-        Iterator<SimEvent> iter = future.iterator();
+        Iterator<SimEvent> iter = context.future.iterator();
         while (iter.hasNext()) {
-            ev = iter.next();
-            if (ev.getSource() == src && p.match(ev)) {
-                iter.remove();
-                break;
+            SimEvent next = iter.next();
+            if (next.getSource() == src && p.match(next) && (ev == null || next.compareTo(ev) < 0)) {
+                ev = next;
             }
         }
+        if (ev != null) {
+            context.future.remove(ev);
+        }
 
         return ev;
     }
@@ -841,16 +821,16 @@ public class CloudSim {
      * @return true, if successful
      */
     public static boolean cancelAll(int src, Predicate p) {
-        SimEvent ev = null;
-        int previousSize = future.size();
-        Iterator<SimEvent> iter = future.iterator();
+        SimulationContext context = context();
+        List<SimEvent> toRemove = new ArrayList<SimEvent>();
+        Iterator<SimEvent> iter = context.future.iterator();
         while (iter.hasNext()) {
-            ev = iter.next();
+            SimEvent ev = iter.next();
             if (ev.getSource() == src && p.match(ev)) {
-                iter.remove();
+                toRemove.add(ev);
             }
         }
-        return previousSize < future.size();
+        return context.future.removeAll(toRemove);
     }
 
     //
@@ -862,13 +842,14 @@ public class CloudSim {
      * @param e the e
      */
     private static void processEvent(SimEvent e) {
+        SimulationContext context = context();
         int dest, src;
         SimEntity dest_ent;
         // Update the system's clock
-        if (e.eventTime() < clock) {
+        if (e.eventTime() < context.clock) {
             throw new IllegalArgumentException("Past event detected.");
         }
-        clock = e.eventTime();
+        context.clock = e.eventTime();
 
         // Ok now process it
         switch (e.getType()) {
@@ -887,19 +868,21 @@ public class CloudSim {
                     throw new IllegalArgumentException("Attempt to send to a null entity detected.");
                 } else {
                     int tag = e.getTag();
-                    dest_ent = entities.get(dest);
+                    dest_ent = context.entities.get(dest);
                     if (dest_ent.getState() == SimEntity.WAITING) {
                         Integer destObj = Integer.valueOf(dest);
-                        Predicate p = waitPredicates.get(destObj);
+                        Predicate p = context.waitPredicates.get(destObj);
                         if ((p == null) || (tag == 9999) || (p.match(e))) {
                             dest_ent.setEventBuffer((SimEvent) e.clone());
                             dest_ent.setState(SimEntity.RUNNABLE);
-                            waitPredicates.remove(destObj);
+                            context.waitPredicates.remove(destObj);
                         } else {
-                            deferred.addEvent(e);
+                            context.deferred.addEvent(e);
+                            context.readyEntities.set(dest);
                         }
                     } else {
-                        deferred.addEvent(e);
+                        context.deferred.addEvent(e);
+                        context.readyEntities.set(dest);
                     }
                 }
                 break;
@@ -909,7 +892,7 @@ public class CloudSim {
                 if (src < 0) {
                     throw new IllegalArgumentException("Null entity holding.");
                 } else {
-                    entities.get(src).setState(SimEntity.RUNNABLE);
+                    context.entities.get(src).setState(SimEntity.RUNNABLE);
                 }
                 break;
 
@@ -918,14 +901,28 @@ public class CloudSim {
         }
     }
 
+    /**
+     * Marks an entity as ready, so that it is run in the next clock tick. It is
+     * called when the entity becomes runnable.
+     *
+     * @param id the id of the entity
+     */
+    static void markReady(int id) {
+        SimulationContext context = context();
+        if (context.readyEntities != null && id >= 0) {
+            context.readyEntities.set(id);
+        }
+    }
+
     /**
      * Internal method used to start the simulation. This method should
      * <b>not</b> be used by user simulations.
      */
     public static void runStart() {
-        running = true;
+        SimulationContext context = context();
+        context.running = true;
         // Start all the entities
-        for (SimEntity ent : entities) {
+        for (SimEntity ent : context.entities) {
             ent.startEntity();
         }
 
@@ -939,7 +936,7 @@ public class CloudSim {
      * @return if the simulation is still running, otherwise
      */
     public static boolean running() {
-        return running;
+        return context().running;
     }
 
     /**
@@ -948,8 +945,9 @@ public class CloudSim {
      * @return true, if successful otherwise.
      */
     public static boolean pauseSimulation() {
-        paused = true;
-        return paused;
+        SimulationContext context = context();
+        context.paused = true;
+        return context.paused;
     }
 
     /**
@@ -960,10 +958,11 @@ public class CloudSim {
      * @return true, if successful otherwise.
      */
     public static boolean pauseSimulation(long time) {
-        if (time <= clock) {
+        SimulationContext context = context();
+        if (time <= context.clock) {
             return false;
         } else {
-            pauseAt = time;
+            context.pauseAt = time;
         }
         return true;
     }
@@ -975,13 +974,14 @@ public class CloudSim {
      * @return if the simulation has been restarted or or otherwise.
      */
     public static boolean resumeSimulation() {
-        paused = false;
+        SimulationContext context = context();
+        context.paused = false;
 
-        if (pauseAt <= clock) {
-            pauseAt = -1;
+        if (context.pauseAt <= context.clock) {
+            context.pauseAt = -1;
         }
 
-        return !paused;
+        return !context.paused;
     }
 
     /**
@@ -991,29 +991,29 @@ public class CloudSim {
      * @return the double last clock value
      */
     public static double run() {
-        if (!running) {
+        SimulationContext context = context();
+        if (!context.running) {
             runStart();
         }
         while (true) {
-            if (runClockTick() || abruptTerminate) {
+            if (runClockTick() || context.abruptTerminate) {
                 break;
             }
 
             // this block allows termination of simulation at a specific time
-            if (terminateAt > 0.0 && clock >= terminateAt) {
+            if (context.terminateAt > 0.0 && context.clock >= context.terminateAt) {
                 terminateSimulation();
-                clock = terminateAt;
+                context.clock = context.terminateAt;
                 break;
             }
 
-            if (pauseAt != -1
-                    && ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-                    .eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+            if (context.pauseAt != -1
+                    && ((context.future.size() > 0 && context.clock <= context.pauseAt && context.pauseAt <= context.future.peek().eventTime()) || context.future.size() == 0 && context.pauseAt <= context.clock)) {
                 pauseSimulation();
-                clock = pauseAt;
+                context.clock = context.pauseAt;
             }
 
-            while (paused) {
+            while (context.paused) {
                 try {
                     Thread.sleep(100);
                 } catch (InterruptedException e) {
@@ -1035,39 +1035,50 @@ public class CloudSim {
      * <b>not</b> be used in user simulations.
      */
     public static void finishSimulation() {
+        SimulationContext context = context();
         // Allow all entities to exit their body method
-        if (!abruptTerminate) {
-            for (SimEntity ent : entities) {
+        if (!context.abruptTerminate) {
+            for (SimEntity ent : context.entities) {
                 if (ent.getState() != SimEntity.FINISHED) {
                     ent.run();
                 }
             }
         }
 
-        for (SimEntity ent : entities) {
+        for (SimEntity ent : context.entities) {
             ent.shutdownEntity();
         }
 
         // reset all static variables
         // Private data members
-        entities = null;
-        entitiesByName = null;
-        future = null;
-        deferred = null;
-        clock = 0L;
-        running = false;
-
-        waitPredicates = null;
-        paused = false;
-        pauseAt = -1;
-        abruptTerminate = false;
+        context.entities = null;
+        context.entitiesByName = null;
+        context.future = null;
+        context.deferred = null;
+        context.readyEntities = null;
+        context.clock = 0L;
+        context.running = false;
+
+        context.waitPredicates = null;
+        context.paused = false;
+        context.pauseAt = -1;
+        context.abruptTerminate = false;
     }
 
     /**
      * Abruptally terminate.
      */
     public static void abruptallyTerminate() {
-        abruptTerminate = true;
+        context().abruptTerminate = true;
+    }
+
+    /**
+     * Gets the context of the simulation run by the calling thread.
+     *
+     * @return the context
+     */
+    private static SimulationContext context() {
+        return SimulationContext.current();
     }
 
     /**
@@ -1085,7 +1096,7 @@ public class CloudSim {
      * @return true, if is paused
      */
     public static boolean isPaused() {
-        return paused;
+        return context().paused;
     }
 
 }
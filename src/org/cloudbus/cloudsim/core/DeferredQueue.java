@@ -8,15 +8,26 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link Simulation}. The events are kept
+ * in one inbox per destination entity, each inbox being a linked list in temporal order. An entity
+ * looking for its events only walks its own inbox, whatever the backlog of the other entities.
+ * <p>
+ * Optionally, each inbox counts its events per tag. Looking for events with a
+ * {@link PredicateType} then returns immediately when the inbox holds none of its tags.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
@@ -24,65 +35,268 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The inboxes, indexed by destination entity id. */
+	private final List<Inbox> inboxes = new ArrayList<Inbox>();
+
+	/** Whether the inboxes count their events per tag. */
+	private final boolean tagIndex;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The number of events in all inboxes. */
+	private int size = 0;
+
+	/**
+	 * Creates a deferred queue whose inboxes count their events per tag.
+	 */
+	public DeferredQueue() {
+		this(true);
+	}
+
+	/**
+	 * Creates a deferred queue.
+	 *
+	 * @param tagIndex true if the inboxes should count their events per tag
+	 */
+	public DeferredQueue(boolean tagIndex) {
+		this.tagIndex = tagIndex;
+	}
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
-		// The event has to be inserted as the last of all events
-		// with the same event_time(). Yes, this matters.
-		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
+		int destination = newEvent.getDestination();
+		while (inboxes.size() <= destination) {
+			inboxes.add(null);
+		}
+		Inbox inbox = inboxes.get(destination);
+		if (inbox == null) {
+			inbox = new Inbox(tagIndex);
+			inboxes.set(destination, inbox);
 		}
+		inbox.add(newEvent);
+		size++;
+	}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
+	/**
+	 * Counts the events waiting for an entity that match a predicate.
+	 *
+	 * @param destination the id of the entity
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(int destination, Predicate p) {
+		Inbox inbox = getInbox(destination);
+		if (inbox == null) {
+			return 0;
+		}
+		if (p instanceof PredicateAny) {
+			return inbox.events.size();
+		}
+		if (p instanceof PredicateType && inbox.tagCounter != null) {
+			PredicateType type = (PredicateType) p;
+			int count = 0;
+			for (int i = 0; i < type.getTagCount(); i++) {
+				count += inbox.tagCounter.count(type.getTag(i));
+			}
+			return count;
+		}
+		int count = 0;
+		for (SimEvent event : inbox.events) {
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the first event waiting for an entity that matches a predicate.
+	 *
+	 * @param destination the id of the entity
+	 * @param p the predicate
+	 * @return the event or <tt>null</tt> if none matches
+	 */
+	public SimEvent findFirst(int destination, Predicate p) {
+		Inbox inbox = getInbox(destination);
+		if (inbox == null || !inbox.mayMatch(p)) {
+			return null;
+		}
+		for (SimEvent event : inbox.events) {
+			if (p.match(event)) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the first event waiting for an entity that matches a predicate.
+	 *
+	 * @param destination the id of the entity
+	 * @param p the predicate
+	 * @return the removed event or <tt>null</tt> if none matches
+	 */
+	public SimEvent select(int destination, Predicate p) {
+		Inbox inbox = getInbox(destination);
+		if (inbox == null || !inbox.mayMatch(p)) {
+			return null;
+		}
+		Iterator<SimEvent> iterator = inbox.events.iterator();
 		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
+			SimEvent event = iterator.next();
+			if (p.match(event)) {
+				iterator.remove();
+				inbox.removed(event);
+				size--;
+				return event;
 			}
 		}
+		return null;
+	}
 
-		list.add(newEvent);
+	/**
+	 * Returns an iterator to the events waiting for an entity, in temporal order.
+	 *
+	 * @param destination the id of the entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int destination) {
+		Inbox inbox = getInbox(destination);
+		if (inbox == null) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+		return Collections.unmodifiableList(inbox.events).iterator();
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
+	 * Returns an iterator to the events in the queue. The events are returned inbox by inbox, so
+	 * only the events of the same destination are in temporal order.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private int destination = -1;
+
+			private Iterator<SimEvent> current = Collections.<SimEvent> emptyList().iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!current.hasNext()) {
+					if (++destination >= inboxes.size()) {
+						return false;
+					}
+					current = iterator(destination);
+				}
+				return true;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return current.next();
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		inboxes.clear();
+		size = 0;
+	}
+
+	private Inbox getInbox(int destination) {
+		if (destination < 0 || destination >= inboxes.size()) {
+			return null;
+		}
+		return inboxes.get(destination);
+	}
+
+	/**
+	 * The deferred events of one destination entity.
+	 */
+	private static final class Inbox {
+
+		/** The events in temporal order. */
+		private final LinkedList<SimEvent> events = new LinkedList<SimEvent>();
+
+		/** The number of events per tag, or <tt>null</tt> if they are not counted. */
+		private final TagCounter tagCounter;
+
+		/** The max time. */
+		private double maxTime = -1;
+
+		Inbox(boolean tagIndex) {
+			tagCounter = tagIndex ? new TagCounter() : null;
+		}
+
+		void add(SimEvent newEvent) {
+			if (tagCounter != null) {
+				tagCounter.add(newEvent);
+			}
+
+			// The event has to be inserted as the last of all events
+			// with the same event_time(). Yes, this matters.
+			double eventTime = newEvent.eventTime();
+			if (eventTime >= maxTime) {
+				events.add(newEvent);
+				maxTime = eventTime;
+				return;
+			}
+
+			ListIterator<SimEvent> iterator = events.listIterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().eventTime() > eventTime) {
+					iterator.previous();
+					iterator.add(newEvent);
+					return;
+				}
+			}
+
+			events.add(newEvent);
+		}
+
+		void removed(SimEvent event) {
+			if (tagCounter != null) {
+				tagCounter.remove(event);
+			}
+		}
+
+		/**
+		 * Checks whether the inbox may hold an event matching a predicate, without walking it.
+		 */
+		boolean mayMatch(Predicate p) {
+			if (events.isEmpty()) {
+				return false;
+			}
+			if (p instanceof PredicateType && tagCounter != null) {
+				PredicateType type = (PredicateType) p;
+				for (int i = 0; i < type.getTagCount(); i++) {
+					if (tagCounter.count(type.getTag(i)) > 0) {
+						return true;
+					}
+				}
+				return false;
+			}
+			return true;
+		}
 	}
 
-}
\ No newline at end of file
+}
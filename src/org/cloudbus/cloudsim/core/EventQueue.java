@@ -0,0 +1,103 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * This interface defines the future event queue used by {@link CloudSim}. Implementations must
+ * return the events ordered by their time and, for events with the same time, by their serial
+ * number. Events with the same time and serial number are returned in insertion order.
+ * <p>
+ * {@link #addEventFirst(SimEvent)} gives the event the serial number <tt>0</tt>, so that it
+ * precedes every other event scheduled for the same time.
+ *
+ * @author Atakan
+ * @see FutureQueue
+ * @see HeapEventQueue
+ * @see CalendarEventQueue
+ */
+public interface EventQueue {
+
+	/**
+	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
+	 * the events in the queue.
+	 *
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addEvent(SimEvent newEvent);
+
+	/**
+	 * Add a new event to the head of the queue.
+	 *
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
+
+	/**
+	 * Returns an iterator to the queue. Unless stated otherwise by the implementation, the events
+	 * are not returned in temporal order and the iterator does not support removal.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns the size of this event queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Returns the number of events in the queue with a given tag. The count is kept up to date as
+	 * events are added and removed, so this method takes constant time.
+	 *
+	 * @param tag the tag
+	 * @return the number of events with the tag
+	 */
+	int countTag(int tag);
+
+	/**
+	 * Removes the event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if successful
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Removes all the events from the queue.
+	 *
+	 * @param events the events
+	 * @return true, if successful
+	 */
+	boolean removeAll(Collection<SimEvent> events);
+
+	/**
+	 * Clears the queue.
+	 */
+	void clear();
+
+}
@@ -10,22 +10,25 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
  * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
+ * {@link TreeSet} in order to store the events. Its iterator returns the events in temporal order.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see java.util.TreeSet
+ * @see EventQueue
  */
-public class FutureQueue {
+public class FutureQueue implements EventQueue {
 
 	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	/** The number of events per tag. */
+	private final TagCounter tagCounter = new TagCounter();
 
 	/** The serial. */
 	private long serial = 0;
@@ -36,9 +39,11 @@ public class FutureQueue {
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
+	@Override
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
 		sortedSet.add(newEvent);
+		tagCounter.add(newEvent);
 	}
 
 	/**
@@ -46,18 +51,67 @@ public class FutureQueue {
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
+	@Override
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
 		sortedSet.add(newEvent);
+		tagCounter.add(newEvent);
 	}
 
 	/**
-	 * Returns an iterator to the queue.
+	 * Returns the first event of the queue without removing it.
+	 * 
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	@Override
+	public SimEvent peek() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 * 
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	@Override
+	public SimEvent poll() {
+		SimEvent first = sortedSet.pollFirst();
+		if (first != null) {
+			tagCounter.remove(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Returns an iterator to the queue. The events are returned in temporal order and the iterator
+	 * supports removal.
 	 * 
 	 * @return the iterator
 	 */
+	@Override
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		final Iterator<SimEvent> iterator = sortedSet.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				tagCounter.remove(last);
+			}
+		};
 	}
 
 	/**
@@ -65,6 +119,7 @@ public class FutureQueue {
 	 * 
 	 * @return the size
 	 */
+	@Override
 	public int size() {
 		return sortedSet.size();
 	}
@@ -75,8 +130,18 @@ public class FutureQueue {
 	 * @param event the event
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		if (sortedSet.remove(event)) {
+			tagCounter.remove(event);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int countTag(int tag) {
+		return tagCounter.count(tag);
 	}
 
 	/**
@@ -85,15 +150,22 @@ public class FutureQueue {
 	 * @param events the events
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
+	@Override
 	public void clear() {
 		sortedSet.clear();
+		tagCounter.clear();
 	}
 
 }
\ No newline at end of file
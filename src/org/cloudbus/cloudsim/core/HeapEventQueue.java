@@ -0,0 +1,314 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class implements the future event queue as an implicit d-ary heap. The events are kept in
+ * an array, so adding an event does not allocate a tree node and both adding and polling cost
+ * O(log<sub>d</sub> n). The event times are duplicated in a separate array to keep the sift loops
+ * away from the event objects.
+ * <p>
+ * The ordering is the same as {@link FutureQueue}: time, then serial, then insertion order.
+ *
+ * @author Atakan
+ * @see EventQueue
+ */
+public class HeapEventQueue implements EventQueue {
+
+	/** The default arity of the heap. */
+	public static final int DEFAULT_ARITY = 4;
+
+	/** The default initial capacity of the heap. */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/** The arity of the heap. */
+	private final int arity;
+
+	/** The events, in heap order. */
+	private SimEvent[] events;
+
+	/** The times of the events, in heap order. */
+	private double[] times;
+
+	/** The insertion stamps of the events, in heap order. */
+	private long[] stamps;
+
+	/** The number of events per tag. */
+	private final TagCounter tagCounter = new TagCounter();
+
+	/** The number of events in the heap. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The insertion stamp. */
+	private long stamp = 0;
+
+	/**
+	 * Creates a 4-ary heap.
+	 */
+	public HeapEventQueue() {
+		this(DEFAULT_ARITY);
+	}
+
+	/**
+	 * Creates a d-ary heap.
+	 *
+	 * @param arity the number of children of each node, 2 for a binary heap
+	 */
+	public HeapEventQueue(int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Heap arity should be at least 2, but is: " + arity);
+		}
+		this.arity = arity;
+		events = new SimEvent[DEFAULT_CAPACITY];
+		times = new double[DEFAULT_CAPACITY];
+		stamps = new long[DEFAULT_CAPACITY];
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : events[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = events[0];
+		removeAt(0);
+		tagCounter.remove(first);
+		return first;
+	}
+
+	/**
+	 * Returns an iterator to the queue. The events are returned in heap order and the iterator does
+	 * not support removal.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return events[next++];
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int countTag(int tag) {
+		return tagCounter.count(tag);
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		for (int i = 0; i < size; i++) {
+			if (events[i] == event) {
+				removeAt(i);
+				tagCounter.remove(event);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all the events from the queue. The remaining events are compacted and the heap is
+	 * rebuilt once, so the cost is O(n) regardless of the number of removed events.
+	 *
+	 * @param events the events
+	 * @return true, if successful
+	 */
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		if (events.isEmpty()) {
+			return false;
+		}
+		Set<SimEvent> toRemove = Collections.newSetFromMap(new IdentityHashMap<SimEvent, Boolean>());
+		toRemove.addAll(events);
+
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (!toRemove.contains(this.events[i])) {
+				move(i, kept++);
+			} else {
+				tagCounter.remove(this.events[i]);
+			}
+		}
+		boolean changed = kept < size;
+		Arrays.fill(this.events, kept, size, null);
+		size = kept;
+
+		for (int i = (size - 2) / arity; i >= 0; i--) {
+			siftDown(i);
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(events, 0, size, null);
+		size = 0;
+		tagCounter.clear();
+	}
+
+	/**
+	 * Inserts an event whose serial has already been set.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		if (size == events.length) {
+			int capacity = events.length * 2;
+			events = Arrays.copyOf(events, capacity);
+			times = Arrays.copyOf(times, capacity);
+			stamps = Arrays.copyOf(stamps, capacity);
+		}
+		events[size] = event;
+		times[size] = event.eventTime();
+		stamps[size] = stamp++;
+		siftUp(size++);
+		tagCounter.add(event);
+	}
+
+	/**
+	 * Removes the event at a given position of the heap.
+	 *
+	 * @param index the position
+	 */
+	private void removeAt(int index) {
+		int last = --size;
+		if (index != last) {
+			move(last, index);
+		}
+		events[last] = null;
+		if (index < size) {
+			siftDown(index);
+			siftUp(index);
+		}
+	}
+
+	/**
+	 * Checks whether the event at position <tt>a</tt> precedes the event at position <tt>b</tt>.
+	 *
+	 * @param a the first position
+	 * @param b the second position
+	 * @return true, if the first event precedes the second
+	 */
+	private boolean before(int a, int b) {
+		if (times[a] != times[b]) {
+			return times[a] < times[b];
+		}
+		long serialA = events[a].getSerial();
+		long serialB = events[b].getSerial();
+		if (serialA != serialB) {
+			return serialA < serialB;
+		}
+		return stamps[a] < stamps[b];
+	}
+
+	/**
+	 * Moves the element in the heap towards the root.
+	 *
+	 * @param index the position of the element
+	 */
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			if (!before(index, parent)) {
+				break;
+			}
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	/**
+	 * Moves the element in the heap towards the leaves.
+	 *
+	 * @param index the position of the element
+	 */
+	private void siftDown(int index) {
+		while (true) {
+			int first = index * arity + 1;
+			if (first >= size) {
+				break;
+			}
+			int min = first;
+			int end = Math.min(first + arity, size);
+			for (int child = first + 1; child < end; child++) {
+				if (before(child, min)) {
+					min = child;
+				}
+			}
+			if (!before(min, index)) {
+				break;
+			}
+			swap(index, min);
+			index = min;
+		}
+	}
+
+	private void move(int from, int to) {
+		events[to] = events[from];
+		times[to] = times[from];
+		stamps[to] = stamps[from];
+	}
+
+	private void swap(int a, int b) {
+		SimEvent event = events[a];
+		double time = times[a];
+		long eventStamp = stamps[a];
+		move(b, a);
+		events[b] = event;
+		times[b] = time;
+		stamps[b] = eventStamp;
+	}
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Datacenter;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.cache.CachePolicy;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * This class holds the state of one simulation: the event queues, the clock and the entities of
+ * {@link CloudSim}, the topology of {@link NetworkTopology}, the counters of {@link Log} and the
+ * shared state of the {@link Datacenter}s. The static methods of these classes work on the context
+ * of the calling thread, so several simulations can run at the same time in one JVM, each one in
+ * its own thread:
+ *
+ * <pre>
+ * executor.submit(() -&gt; new SimulationContext().call(() -&gt; runSimulation(quantum, aggression)));
+ * </pre>
+ *
+ * A thread that is not running a context uses a default one shared by the whole JVM, so
+ * single-threaded simulations do not need to know about contexts at all.
+ * <p>
+ * The topology read from a BRITE file and its delay matrix are the most expensive parts to build.
+ * A context can share them with another context, see {@link #SimulationContext(SimulationContext)}.
+ *
+ * @author Atakan
+ */
+public class SimulationContext {
+
+	/** The context used by the threads that are not running one. */
+	private static final SimulationContext DEFAULT = new SimulationContext();
+
+	/** The context of each thread. */
+	private static final ThreadLocal<SimulationContext> CURRENT = new ThreadLocal<SimulationContext>();
+
+	// ATAKAN: User defined simulation parameters
+	double aggression;
+
+	double cacheQuantum;
+
+	boolean cacheEnabled = false;
+
+	int cacheLength;
+
+	long cacheBytes = Long.MAX_VALUE;
+
+	CachePolicy.Type cachePolicy = CachePolicy.Type.LRU;
+
+	int demandWindows = 1;
+
+	double demandDecay = 0;
+
+	long prefetchLead = 0;
+
+	final HashMap<Integer, Double> storageCosts = new HashMap<Integer, Double>();
+
+	final HashMap<Integer, Double> bandwidthCosts = new HashMap<Integer, Double>();
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/** The minimal time between events. */
+	double minTimeBetweenEvents = 0.1;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	EventQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/** The ids of the entities that may have something to do in the next tick. */
+	BitSet readyEntities;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/** The wait predicates. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	/** The network topology. */
+	private final NetworkTopology.State topology;
+
+	/** The log counters and output. */
+	private final Log.State log = new Log.State();
+
+	/** The state shared by the datacenters. */
+	private final Datacenter.State datacenters = new Datacenter.State();
+
+	/**
+	 * Creates an empty context.
+	 */
+	public SimulationContext() {
+		topology = new NetworkTopology.State();
+	}
+
+	/**
+	 * Creates an empty context that shares the topology of another one. The graph and the matrices
+	 * are shared, the mapping of the entities to the nodes is copied. The other context should have
+	 * generated its matrices and should not change its topology afterwards. The entities of this
+	 * context should be created in the same order as in the other one, so that they get the same
+	 * ids and the copied mapping still holds.
+	 *
+	 * @param other the context whose topology is shared
+	 */
+	public SimulationContext(SimulationContext other) {
+		topology = other.topology.share();
+	}
+
+	/**
+	 * Gets the context of the calling thread.
+	 *
+	 * @return the context run by the thread, or the default one if the thread is not running one
+	 */
+	public static SimulationContext current() {
+		SimulationContext context = CURRENT.get();
+		return context == null ? DEFAULT : context;
+	}
+
+	/**
+	 * Runs a task in this context. The static methods of {@link CloudSim}, {@link NetworkTopology},
+	 * {@link Log} and {@link Datacenter} called by the task work on this context. The context of the
+	 * calling thread is restored afterwards.
+	 *
+	 * @param task the task
+	 * @param <T> the type of the result
+	 * @return the result of the task
+	 * @throws Exception if the task throws one
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		SimulationContext previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return task.call();
+		} finally {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Runs a task in this context.
+	 *
+	 * @param task the task
+	 * @see #call(Callable)
+	 */
+	public void run(final Runnable task) {
+		try {
+			call(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					task.run();
+					return null;
+				}
+			});
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			// Runnable.run() does not throw checked exceptions
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets the network topology of this context.
+	 *
+	 * @return the topology
+	 */
+	public NetworkTopology.State getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Gets the log counters and output of this context.
+	 *
+	 * @return the log state
+	 */
+	public Log.State getLog() {
+		return log;
+	}
+
+	/**
+	 * Gets the state shared by the datacenters of this context.
+	 *
+	 * @return the datacenter state
+	 */
+	public Datacenter.State getDatacenters() {
+		return datacenters;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+
+/**
+ * Counts the events of an {@link EventQueue} per tag. The counts are kept in an open addressing
+ * table of primitive ints, so updating them neither boxes the tag nor allocates. Tags are never
+ * removed from the table; a simulation only uses a handful of them.
+ *
+ * @author Atakan
+ */
+final class TagCounter {
+
+	/** The initial capacity of the table, a power of two. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The tags. */
+	private int[] tags = new int[INITIAL_CAPACITY];
+
+	/** The number of events per tag. */
+	private int[] counts = new int[INITIAL_CAPACITY];
+
+	/** Whether a slot of the table is in use. */
+	private boolean[] used = new boolean[INITIAL_CAPACITY];
+
+	/** The number of slots in use. */
+	private int slots = 0;
+
+	/**
+	 * Counts a new event.
+	 *
+	 * @param event the event added to the queue
+	 */
+	void add(SimEvent event) {
+		counts[slot(event.getTag())]++;
+	}
+
+	/**
+	 * Discounts an event.
+	 *
+	 * @param event the event removed from the queue
+	 */
+	void remove(SimEvent event) {
+		counts[slot(event.getTag())]--;
+	}
+
+	/**
+	 * Gets the number of events with a given tag.
+	 *
+	 * @param tag the tag
+	 * @return the number of events
+	 */
+	int count(int tag) {
+		int mask = tags.length - 1;
+		for (int i = mix(tag) & mask; used[i]; i = (i + 1) & mask) {
+			if (tags[i] == tag) {
+				return counts[i];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Resets all counts.
+	 */
+	void clear() {
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * Finds the slot of a tag, adding it to the table if it is not there yet.
+	 *
+	 * @param tag the tag
+	 * @return the slot
+	 */
+	private int slot(int tag) {
+		int mask = tags.length - 1;
+		int i = mix(tag) & mask;
+		while (used[i]) {
+			if (tags[i] == tag) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		if (2 * (slots + 1) > tags.length) {
+			grow();
+			return slot(tag);
+		}
+		used[i] = true;
+		tags[i] = tag;
+		slots++;
+		return i;
+	}
+
+	private void grow() {
+		int[] oldTags = tags;
+		int[] oldCounts = counts;
+		boolean[] oldUsed = used;
+		tags = new int[oldTags.length * 2];
+		counts = new int[oldTags.length * 2];
+		used = new boolean[oldTags.length * 2];
+		slots = 0;
+		for (int i = 0; i < oldTags.length; i++) {
+			if (oldUsed[i]) {
+				counts[slot(oldTags[i])] = oldCounts[i];
+			}
+		}
+	}
+
+	private static int mix(int tag) {
+		int h = tag * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Iterator;
+
+/**
+ * AdjacencyGraph is an immutable adjacency list of a topological graph in compressed sparse row
+ * form: the links leaving node <tt>i</tt> are the entries <tt>getStart(i)</tt> to
+ * <tt>getEnd(i) - 1</tt> of the target and delay arrays. It takes memory proportional to the
+ * number of links instead of the square of the number of nodes, and its links are walked without
+ * allocations.
+ *
+ * @author Atakan
+ */
+public class AdjacencyGraph {
+
+	/** The number of nodes. */
+	private final int numNodes;
+
+	/** The first entry of each node, and the number of entries at the end. */
+	private final int[] offsets;
+
+	/** The target node of each entry. */
+	private final int[] targets;
+
+	/** The delay of each entry. */
+	private final float[] delays;
+
+	/**
+	 * Creates the adjacency list of a topological graph.
+	 *
+	 * @param graph the topological graph
+	 * @param directed true if the links are directed, false if each link also goes back
+	 */
+	public AdjacencyGraph(TopologicalGraph graph, boolean directed) {
+		numNodes = graph.getNumberOfNodes();
+		offsets = new int[numNodes + 1];
+
+		// count the entries of each node, then turn the counts into offsets
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			offsets[edge.getSrcNodeID() + 1]++;
+			if (!directed) {
+				offsets[edge.getDestNodeID() + 1]++;
+			}
+		}
+		for (int i = 0; i < numNodes; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		targets = new int[offsets[numNodes]];
+		delays = new float[offsets[numNodes]];
+		int[] next = new int[numNodes];
+		System.arraycopy(offsets, 0, next, 0, numNodes);
+		itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			int entry = next[edge.getSrcNodeID()]++;
+			targets[entry] = edge.getDestNodeID();
+			delays[entry] = edge.getLinkDelay();
+			if (!directed) {
+				entry = next[edge.getDestNodeID()]++;
+				targets[entry] = edge.getSrcNodeID();
+				delays[entry] = edge.getLinkDelay();
+			}
+		}
+	}
+
+	/**
+	 * Creates the adjacency list of a compact graph, without going through link objects.
+	 *
+	 * @param graph the compact graph
+	 * @param directed true if the links are directed, false if each link also goes back
+	 */
+	public AdjacencyGraph(CompactGraph graph, boolean directed) {
+		numNodes = graph.getNumberOfNodes();
+		offsets = new int[numNodes + 1];
+		int numLinks = graph.getNumberOfLinks();
+		for (int k = 0; k < numLinks; k++) {
+			offsets[graph.getSrcNodeID(k) + 1]++;
+			if (!directed) {
+				offsets[graph.getDestNodeID(k) + 1]++;
+			}
+		}
+		for (int i = 0; i < numNodes; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		targets = new int[offsets[numNodes]];
+		delays = new float[offsets[numNodes]];
+		int[] next = new int[numNodes];
+		System.arraycopy(offsets, 0, next, 0, numNodes);
+		for (int k = 0; k < numLinks; k++) {
+			int entry = next[graph.getSrcNodeID(k)]++;
+			targets[entry] = graph.getDestNodeID(k);
+			delays[entry] = graph.getLinkDelay(k);
+			if (!directed) {
+				entry = next[graph.getDestNodeID(k)]++;
+				targets[entry] = graph.getSrcNodeID(k);
+				delays[entry] = graph.getLinkDelay(k);
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of nodes.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNumberOfNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Gets the first entry of the links leaving a node.
+	 *
+	 * @param node the node id
+	 * @return the entry
+	 */
+	public int getStart(int node) {
+		return offsets[node];
+	}
+
+	/**
+	 * Gets the entry after the last link leaving a node.
+	 *
+	 * @param node the node id
+	 * @return the entry
+	 */
+	public int getEnd(int node) {
+		return offsets[node + 1];
+	}
+
+	/**
+	 * Gets the target node of an entry.
+	 *
+	 * @param entry the entry
+	 * @return the node id
+	 */
+	public int getTarget(int entry) {
+		return targets[entry];
+	}
+
+	/**
+	 * Gets the delay of an entry.
+	 *
+	 * @param entry the entry
+	 * @return the link delay
+	 */
+	public float getDelay(int entry) {
+		return delays[entry];
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Blocked Floyd-Warshall algorithm to calculate all pairs delay, hop count and predecessor matrices
+ * of a dense topology. Unlike {@link FloydWarshall_Float}, the matrices are updated in place and
+ * stored row-major in flat arrays, so there is a single copy of them and no copy per iteration.
+ * <p>
+ * The matrices are split into square tiles and the iterations are processed one tile width at a
+ * time: first the tile on the diagonal, then the other tiles of its row and column, then all the
+ * remaining tiles. A tile fits in the processor cache while its iterations run, and the tiles of
+ * the last two steps are independent of each other, so they are spread over the threads of the
+ * common fork/join pool.
+ * <p>
+ * The delay is minimised first and the hop count breaks the ties, as with {@link Dijkstra_Float}.
+ * An unreachable node has a delay and a hop count of Float.MAX_VALUE and a predecessor of -1.
+ *
+ * @author Atakan
+ */
+public class BlockedFloydWarshall_Float {
+
+	/** The width of a tile: three tiles of delays, hop counts and predecessors fit in the L2 cache. */
+	private static final int TILE = 64;
+
+	/** The number of tiles updated by a task of the fork/join pool. */
+	private static final int TILES_PER_TASK = 4;
+
+	/** Number of vertices. */
+	private final int numVertices;
+
+	/** Number of tiles in a row. */
+	private final int numTiles;
+
+	/** The delay matrix, row-major. */
+	private final float[] delays;
+
+	/** The hop count matrix, row-major. */
+	private final float[] hopCounts;
+
+	/** The predecessor matrix, row-major. */
+	private final int[] predecessors;
+
+	/**
+	 * Creates the matrices of a topological graph, holding the links only.
+	 *
+	 * @param graph the topological graph
+	 * @param directed true if the links are directed, false if each link also goes back
+	 */
+	public BlockedFloydWarshall_Float(TopologicalGraph graph, boolean directed) {
+		numVertices = graph.getNumberOfNodes();
+		numTiles = (numVertices + TILE - 1) / TILE;
+		int cells = numVertices * numVertices;
+		delays = new float[cells];
+		hopCounts = new float[cells];
+		predecessors = new int[cells];
+		Arrays.fill(delays, Float.MAX_VALUE);
+		Arrays.fill(hopCounts, Float.MAX_VALUE);
+		Arrays.fill(predecessors, -1);
+
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			setLink(edge.getSrcNodeID(), edge.getDestNodeID(), edge.getLinkDelay());
+			if (!directed) {
+				setLink(edge.getDestNodeID(), edge.getSrcNodeID(), edge.getLinkDelay());
+			}
+		}
+		for (int i = 0; i < numVertices; i++) {
+			delays[i * numVertices + i] = 0;
+			hopCounts[i * numVertices + i] = 0;
+			predecessors[i * numVertices + i] = -1;
+		}
+	}
+
+	private void setLink(int src, int dest, float delay) {
+		int ij = src * numVertices + dest;
+		if (delay < delays[ij]) {
+			delays[ij] = delay;
+			hopCounts[ij] = 1;
+			predecessors[ij] = src;
+		}
+	}
+
+	/**
+	 * Calculates all pairs shortest paths in place.
+	 */
+	public void allPairsShortestPaths() {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		for (int kt = 0; kt < numTiles; kt++) {
+			// the diagonal tile depends on itself only
+			updateTile(kt, kt, kt);
+			// the tiles of its row and column depend on themselves and on the diagonal tile
+			pool.invoke(new TilesTask(kt, true, 0, 2 * (numTiles - 1)));
+			// the other tiles depend on themselves and on the tiles of the row and column
+			pool.invoke(new TilesTask(kt, false, 0, (numTiles - 1) * (numTiles - 1)));
+		}
+	}
+
+	/**
+	 * Gets the delay matrix.
+	 *
+	 * @return the delays, row-major
+	 */
+	public float[] getDelays() {
+		return delays;
+	}
+
+	/**
+	 * Gets the hop count matrix.
+	 *
+	 * @return the hop counts, row-major
+	 */
+	public float[] getHopCounts() {
+		return hopCounts;
+	}
+
+	/**
+	 * Gets the predecessor matrix.
+	 *
+	 * @return the predecessor of each destination on the path from each source, row-major
+	 */
+	public int[] getPredecessors() {
+		return predecessors;
+	}
+
+	/**
+	 * Updates a tile with the iterations of a tile width.
+	 *
+	 * @param it the row of the tile
+	 * @param jt the column of the tile
+	 * @param kt the iterations
+	 */
+	private void updateTile(int it, int jt, int kt) {
+		int n = numVertices;
+		int iEnd = Math.min(n, (it + 1) * TILE);
+		int jStart = jt * TILE;
+		int jEnd = Math.min(n, jStart + TILE);
+		int kEnd = Math.min(n, (kt + 1) * TILE);
+		for (int k = kt * TILE; k < kEnd; k++) {
+			int kRow = k * n;
+			for (int i = it * TILE; i < iEnd; i++) {
+				int iRow = i * n;
+				float dik = delays[iRow + k];
+				if (dik == Float.MAX_VALUE) {
+					continue;
+				}
+				float hik = hopCounts[iRow + k];
+				for (int j = jStart; j < jEnd; j++) {
+					float dkj = delays[kRow + j];
+					if (dkj == Float.MAX_VALUE) {
+						continue;
+					}
+					float d = dik + dkj;
+					float dij = delays[iRow + j];
+					if (d <= dij) {
+						float h = hik + hopCounts[kRow + j];
+						if (d < dij || h < hopCounts[iRow + j]) {
+							delays[iRow + j] = d;
+							hopCounts[iRow + j] = h;
+							predecessors[iRow + j] = predecessors[kRow + j];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The update of a range of the independent tiles of an iteration step.
+	 */
+	private final class TilesTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The tile width of iterations. */
+		private final int kt;
+
+		/** True for the tiles of the row and column of the diagonal, false for the others. */
+		private final boolean cross;
+
+		private final int from;
+
+		private final int to;
+
+		TilesTask(int kt, boolean cross, int from, int to) {
+			this.kt = kt;
+			this.cross = cross;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > TILES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TilesTask(kt, cross, from, middle), new TilesTask(kt, cross, middle, to));
+				return;
+			}
+			int others = numTiles - 1;
+			for (int t = from; t < to; t++) {
+				if (cross) {
+					// the first half are the tiles of the row, the second half the tiles of the column
+					int other = t % others;
+					other += other >= kt ? 1 : 0;
+					if (t < others) {
+						updateTile(kt, other, kt);
+					} else {
+						updateTile(other, kt, kt);
+					}
+				} else {
+					int it = t / others;
+					int jt = t % others;
+					updateTile(it + (it >= kt ? 1 : 0), jt + (jt >= kt ? 1 : 0), kt);
+				}
+			}
+		}
+	}
+
+}
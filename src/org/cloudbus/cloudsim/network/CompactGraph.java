@@ -0,0 +1,182 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+
+/**
+ * CompactGraph is a topological graph held in primitive arrays, one per attribute of the nodes and
+ * of the links, instead of a {@link TopologicalNode} and a {@link TopologicalLink} per node and per
+ * link. A link takes 16 bytes, so graphs of millions of links fit in a small heap. The node ids are
+ * the positions of the nodes, from 0; the label of a node is its id in the file it was read from.
+ *
+ * @author Atakan
+ */
+public class CompactGraph {
+
+	/** The number of nodes. */
+	private int numNodes;
+
+	/** The label of each node. */
+	private long[] labels;
+
+	/** The x coordinate of each node. */
+	private int[] xs;
+
+	/** The y coordinate of each node. */
+	private int[] ys;
+
+	/** The number of links. */
+	private int numLinks;
+
+	/** The source node of each link. */
+	private int[] srcs;
+
+	/** The destination node of each link. */
+	private int[] dests;
+
+	/** The delay of each link. */
+	private float[] delays;
+
+	/** The bandwidth of each link. */
+	private float[] bws;
+
+	/**
+	 * Creates an empty graph.
+	 */
+	public CompactGraph() {
+		this(16, 16);
+	}
+
+	/**
+	 * Creates an empty graph.
+	 *
+	 * @param nodeCapacity the number of nodes held before the arrays grow
+	 * @param linkCapacity the number of links held before the arrays grow
+	 */
+	public CompactGraph(int nodeCapacity, int linkCapacity) {
+		labels = new long[Math.max(1, nodeCapacity)];
+		xs = new int[labels.length];
+		ys = new int[labels.length];
+		srcs = new int[Math.max(1, linkCapacity)];
+		dests = new int[srcs.length];
+		delays = new float[srcs.length];
+		bws = new float[srcs.length];
+	}
+
+	/**
+	 * Adds a node.
+	 *
+	 * @param label the label of the node
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return the id of the node
+	 */
+	public int addNode(long label, int x, int y) {
+		if (numNodes == labels.length) {
+			int capacity = 2 * numNodes;
+			labels = Arrays.copyOf(labels, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+		labels[numNodes] = label;
+		xs[numNodes] = x;
+		ys[numNodes] = y;
+		return numNodes++;
+	}
+
+	/**
+	 * Adds a link.
+	 *
+	 * @param src the id of the source node
+	 * @param dest the id of the destination node
+	 * @param delay the delay of the link
+	 * @param bw the bandwidth of the link
+	 */
+	public void addLink(int src, int dest, float delay, float bw) {
+		if (numLinks == srcs.length) {
+			int capacity = 2 * numLinks;
+			srcs = Arrays.copyOf(srcs, capacity);
+			dests = Arrays.copyOf(dests, capacity);
+			delays = Arrays.copyOf(delays, capacity);
+			bws = Arrays.copyOf(bws, capacity);
+		}
+		srcs[numLinks] = src;
+		dests[numLinks] = dest;
+		delays[numLinks] = delay;
+		bws[numLinks] = bw;
+		numLinks++;
+	}
+
+	/**
+	 * Releases the room of the arrays beyond the nodes and links.
+	 */
+	public void trimToSize() {
+		labels = Arrays.copyOf(labels, Math.max(1, numNodes));
+		xs = Arrays.copyOf(xs, labels.length);
+		ys = Arrays.copyOf(ys, labels.length);
+		srcs = Arrays.copyOf(srcs, Math.max(1, numLinks));
+		dests = Arrays.copyOf(dests, srcs.length);
+		delays = Arrays.copyOf(delays, srcs.length);
+		bws = Arrays.copyOf(bws, srcs.length);
+	}
+
+	public int getNumberOfNodes() {
+		return numNodes;
+	}
+
+	public long getNodeLabel(int node) {
+		return labels[node];
+	}
+
+	public int getCoordinateX(int node) {
+		return xs[node];
+	}
+
+	public int getCoordinateY(int node) {
+		return ys[node];
+	}
+
+	public int getNumberOfLinks() {
+		return numLinks;
+	}
+
+	public int getSrcNodeID(int link) {
+		return srcs[link];
+	}
+
+	public int getDestNodeID(int link) {
+		return dests[link];
+	}
+
+	public float getLinkDelay(int link) {
+		return delays[link];
+	}
+
+	public float getLinkBw(int link) {
+		return bws[link];
+	}
+
+	/**
+	 * Creates the object graph of the nodes and links, as read by {@link GraphReaderBrite}.
+	 *
+	 * @return the topological graph
+	 */
+	public TopologicalGraph toTopologicalGraph() {
+		TopologicalGraph graph = new TopologicalGraph();
+		for (int i = 0; i < numNodes; i++) {
+			graph.addNode(new TopologicalNode(i, Long.toString(labels[i]), xs[i], ys[i]));
+		}
+		for (int k = 0; k < numLinks; k++) {
+			graph.addLink(new TopologicalLink(srcs[k], dests[k], delays[k], bws[k]));
+		}
+		return graph;
+	}
+
+}
@@ -7,7 +7,12 @@
  */
 package org.cloudbus.cloudsim.network;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This class represents an delay-topology storing every distance between
@@ -18,6 +23,72 @@ import java.util.Iterator;
  */
 public class DelayMatrix_Float {
 
+    /**
+     * The algorithms that calculate the shortest paths.
+     */
+    public enum Algorithm {
+
+        /**
+         * {@link FloydWarshall_Float} over the dense matrices, once for the
+         * delay and once for the hop count.
+         */
+        FLOYD_WARSHALL,
+
+        /**
+         * {@link BlockedFloydWarshall_Float} in place over flat matrices,
+         * computing the delay, hop count and predecessor in one pass, for
+         * dense topologies.
+         */
+        BLOCKED_FLOYD_WARSHALL,
+
+        /**
+         * {@link Dijkstra_Float} from each source over the adjacency list,
+         * computing the delay, hop count and predecessor in one pass.
+         */
+        DIJKSTRA,
+
+        /**
+         * {@link Dijkstra_Float} from a source when its row is first used,
+         * keeping the most recently used rows only, for topologies too large
+         * for the full matrices.
+         */
+        LAZY_DIJKSTRA
+    }
+
+    /**
+     * Where the full matrices are stored.
+     */
+    public enum Storage {
+
+        /**
+         * An array per row of each matrix, on the heap.
+         */
+        ROWS,
+
+        /**
+         * A {@link FlatMatrix} per matrix, on the heap.
+         */
+        HEAP,
+
+        /**
+         * A {@link FlatMatrix} per matrix, off the heap, so the heap does not
+         * have to hold the matrices of large topologies.
+         */
+        DIRECT,
+
+        /**
+         * A {@link FlatMatrix} per matrix, mapped from a temporary file, so
+         * the matrices take no heap and their pages are swapped out by the
+         * operating system when memory runs short.
+         */
+        MAPPED
+    }
+
+    /**
+     * The number of rows kept in lazy mode by default.
+     */
+    public static final int DEFAULT_CACHED_ROWS = 1024;
+
     /**
      * matrix holding delay information between any two nodes
      */
@@ -27,11 +98,48 @@ public class DelayMatrix_Float {
     /**
      * number of nodes in the distance-aware-topology
      */
+    // ATAKAN: the matrices may have room for more nodes, so that the nodes added one by one do
+    // not copy them each time; the cells past mTotalNodeNum are not used.
     protected int mTotalNodeNum = 0;
 
     // ATAKAN: Predecessor matrix;
     protected int[][] predecessorsMatrix = null;
 
+    // ATAKAN: Flat storage: the matrices, instead of the arrays of rows.
+    private FlatMatrix flatDelays = null;
+
+    private FlatMatrix flatHopCounts = null;
+
+    private FlatMatrix flatPredecessors = null;
+
+    // ATAKAN: Lazy mode: the rows computed so far, least recently used first, instead of the matrices.
+    private LinkedHashMap<Integer, Row> rowCache = null;
+
+    private AdjacencyGraph adjacency = null;
+
+    private Dijkstra_Float dijkstra = null;
+
+    // ATAKAN: How the matrices were computed and where they are stored, for the incremental updates.
+    private Algorithm algorithm = Algorithm.FLOYD_WARSHALL;
+
+    private Storage storage = Storage.ROWS;
+
+    /**
+     * The delays, hop counts and predecessors from a source.
+     */
+    private static final class Row {
+
+        private final float[] delays;
+        private final float[] hopCounts;
+        private final int[] predecessors;
+
+        private Row(int nodes) {
+            delays = new float[nodes];
+            hopCounts = new float[nodes];
+            predecessors = new int[nodes];
+        }
+    }
+
     /**
      * private constructor to ensure that only an correct initialized
      * delay-matrix could be created
@@ -49,6 +157,95 @@ public class DelayMatrix_Float {
 	 * @param directed true if an directed matrix should be computed, false otherwise
 	 */
 	public DelayMatrix_Float(TopologicalGraph graph, boolean directed) {
+        this(graph, directed, Algorithm.FLOYD_WARSHALL);
+    }
+
+    /**
+     * this constructor creates an correct initialized Float-Delay-Matrix
+     *
+     * @param graph the topological graph as source-information
+     * @param directed true if an directed matrix should be computed, false
+     * otherwise
+     * @param algorithm the algorithm that calculates the shortest paths
+     */
+    public DelayMatrix_Float(TopologicalGraph graph, boolean directed, Algorithm algorithm) {
+        this(graph, directed, algorithm, DEFAULT_CACHED_ROWS);
+    }
+
+    /**
+     * this constructor creates an correct initialized Float-Delay-Matrix
+     *
+     * @param graph the topological graph as source-information
+     * @param directed true if an directed matrix should be computed, false
+     * otherwise
+     * @param algorithm the algorithm that calculates the shortest paths
+     * @param cachedRows the number of rows kept in lazy mode
+     * @throws IllegalArgumentException if no row would be kept in lazy mode
+     */
+    public DelayMatrix_Float(TopologicalGraph graph, boolean directed, Algorithm algorithm, int cachedRows) {
+        this(graph, directed, algorithm, cachedRows, Storage.ROWS);
+    }
+
+    /**
+     * this constructor creates an correct initialized Float-Delay-Matrix
+     *
+     * @param graph the topological graph as source-information
+     * @param directed true if an directed matrix should be computed, false
+     * otherwise
+     * @param algorithm the algorithm that calculates the shortest paths
+     * @param cachedRows the number of rows kept in lazy mode
+     * @param storage where the matrices are stored, ignored in lazy mode
+     * @throws IllegalArgumentException if no row would be kept in lazy mode
+     * @throws UncheckedIOException if the matrices cannot be mapped
+     */
+    public DelayMatrix_Float(TopologicalGraph graph, boolean directed, Algorithm algorithm, final int cachedRows,
+            Storage storage) {
+        this.algorithm = algorithm;
+        this.storage = storage;
+        if (algorithm == Algorithm.LAZY_DIJKSTRA) {
+            if (cachedRows < 1) {
+                throw new IllegalArgumentException("At least one row should be cached.");
+            }
+            mTotalNodeNum = graph.getNumberOfNodes();
+            adjacency = new AdjacencyGraph(graph, directed);
+            dijkstra = new Dijkstra_Float(adjacency);
+            rowCache = new LinkedHashMap<Integer, Row>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Row> eldest) {
+                    return size() > cachedRows;
+                }
+            };
+            return;
+        }
+        if (storage != Storage.ROWS) {
+            createFlatMatrices(graph, directed, algorithm, storage);
+            return;
+        }
+        if (algorithm == Algorithm.DIJKSTRA) {
+            // ATAKAN: the rows are filled by the sources, no dense preinitialization needed.
+            mTotalNodeNum = graph.getNumberOfNodes();
+            mDelayMatrix = new float[mTotalNodeNum][];
+            mHopCountMatrix = new float[mTotalNodeNum][];
+            predecessorsMatrix = new int[mTotalNodeNum][];
+            Dijkstra_Float.allPairsShortestPaths(new AdjacencyGraph(graph, directed), mDelayMatrix,
+                    mHopCountMatrix, predecessorsMatrix);
+            return;
+        }
+        if (algorithm == Algorithm.BLOCKED_FLOYD_WARSHALL) {
+            mTotalNodeNum = graph.getNumberOfNodes();
+            BlockedFloydWarshall_Float floyd = new BlockedFloydWarshall_Float(graph, directed);
+            floyd.allPairsShortestPaths();
+            mDelayMatrix = toRows(floyd.getDelays());
+            mHopCountMatrix = toRows(floyd.getHopCounts());
+            predecessorsMatrix = new int[mTotalNodeNum][];
+            for (int row = 0; row < mTotalNodeNum; ++row) {
+                predecessorsMatrix[row] = Arrays.copyOfRange(floyd.getPredecessors(), row * mTotalNodeNum, (row + 1) * mTotalNodeNum);
+            }
+            return;
+        }
 
         // lets preinitialize the Delay-Matrix
         createDelayMatrix(graph, directed);
@@ -58,6 +255,134 @@ public class DelayMatrix_Float {
         calculateShortestPath();
     }
 
+    /**
+     * this constructor wraps matrices computed before, such as the ones
+     * stored by a {@link MatrixCache}
+     *
+     * @param delays the delay matrix
+     * @param hopCounts the hop count matrix
+     * @param predecessors the predecessor matrix
+     * @param algorithm the algorithm that calculated the matrices
+     * @param storage where the matrices are copied when they have to change
+     * and are read-only, or have to grow
+     * @throws IllegalArgumentException if the matrices differ in size, or
+     * the algorithm is lazy, or the storage is ROWS
+     */
+    public DelayMatrix_Float(FlatMatrix delays, FlatMatrix hopCounts, FlatMatrix predecessors,
+            Algorithm algorithm, Storage storage) {
+        if (hopCounts.getSize() != delays.getSize() || predecessors.getSize() != delays.getSize()) {
+            throw new IllegalArgumentException("The matrices should have the same size.");
+        }
+        if (algorithm == Algorithm.LAZY_DIJKSTRA || storage == Storage.ROWS) {
+            throw new IllegalArgumentException("The matrices should be full and flat.");
+        }
+        this.algorithm = algorithm;
+        this.storage = storage;
+        mTotalNodeNum = delays.getSize();
+        flatDelays = delays;
+        flatHopCounts = hopCounts;
+        flatPredecessors = predecessors;
+    }
+
+    // ATAKAN: computes the matrices straight into flat storage; Dijkstra writes its rows there, the
+    // other algorithms are copied over row by row, their own matrices being dropped afterwards.
+    private void createFlatMatrices(TopologicalGraph graph, boolean directed, Algorithm algorithm, Storage storage) {
+        mTotalNodeNum = graph.getNumberOfNodes();
+        try {
+            flatDelays = createFlatMatrix(mTotalNodeNum, storage);
+            flatHopCounts = createFlatMatrix(mTotalNodeNum, storage);
+            flatPredecessors = createFlatMatrix(mTotalNodeNum, storage);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The delay matrix cannot be mapped.", e);
+        }
+        if (algorithm == Algorithm.DIJKSTRA) {
+            Dijkstra_Float.allPairsShortestPaths(new AdjacencyGraph(graph, directed), flatDelays, flatHopCounts,
+                    flatPredecessors);
+        } else if (algorithm == Algorithm.BLOCKED_FLOYD_WARSHALL) {
+            BlockedFloydWarshall_Float floyd = new BlockedFloydWarshall_Float(graph, directed);
+            floyd.allPairsShortestPaths();
+            for (int row = 0; row < mTotalNodeNum; ++row) {
+                flatDelays.setRow(row, floyd.getDelays(), row * mTotalNodeNum);
+                flatHopCounts.setRow(row, floyd.getHopCounts(), row * mTotalNodeNum);
+                flatPredecessors.setRow(row, floyd.getPredecessors(), row * mTotalNodeNum);
+            }
+        } else {
+            createDelayMatrix(graph, directed);
+            createHopCountMatrix(graph, directed);
+            calculateShortestPath();
+            for (int row = 0; row < mTotalNodeNum; ++row) {
+                flatDelays.setRow(row, mDelayMatrix[row], 0);
+                flatHopCounts.setRow(row, mHopCountMatrix[row], 0);
+                flatPredecessors.setRow(row, predecessorsMatrix[row], 0);
+            }
+            mDelayMatrix = null;
+            mHopCountMatrix = null;
+            predecessorsMatrix = null;
+        }
+    }
+
+    /**
+     * Creates a square matrix filled with zeros.
+     *
+     * @param size the number of rows and columns
+     * @param storage where the matrix is stored, ROWS being taken as HEAP
+     * @return the matrix
+     * @throws IOException if the matrix cannot be mapped
+     */
+    public static FlatMatrix createFlatMatrix(int size, Storage storage) throws IOException {
+        if (storage == Storage.MAPPED) {
+            return FlatMatrix.mapTemporary(size);
+        }
+        return FlatMatrix.allocate(size, storage == Storage.DIRECT);
+    }
+
+    /**
+     * Creates a copy of a matrix with another size. The cells out of the
+     * matrix are zero.
+     *
+     * @param matrix the matrix
+     * @param size the number of rows and columns of the copy
+     * @param storage where the copy is stored, ROWS being taken as HEAP
+     * @return the copy
+     * @throws IOException if the copy cannot be mapped
+     */
+    public static FlatMatrix copyFlatMatrix(FlatMatrix matrix, int size, Storage storage) throws IOException {
+        return copyFlatMatrix(matrix, Math.min(size, matrix.getSize()), size, storage);
+    }
+
+    /**
+     * Creates a copy of the first rows and columns of a matrix, in a matrix
+     * of another size. The other cells are zero.
+     *
+     * @param matrix the matrix
+     * @param nodes the number of rows and columns copied
+     * @param size the number of rows and columns of the copy
+     * @param storage where the copy is stored, ROWS being taken as HEAP
+     * @return the copy
+     * @throws IOException if the copy cannot be mapped
+     */
+    public static FlatMatrix copyFlatMatrix(FlatMatrix matrix, int nodes, int size, Storage storage)
+            throws IOException {
+        FlatMatrix copy = createFlatMatrix(size, storage);
+        int[] row = new int[nodes];
+        for (int src = 0; src < nodes; ++src) {
+            for (int dest = 0; dest < nodes; ++dest) {
+                row[dest] = matrix.getInt(src, dest);
+            }
+            copy.setRow(src, row, 0, nodes);
+        }
+        return copy;
+    }
+
+    // ATAKAN: splits a row-major matrix into its rows.
+    private float[][] toRows(float[] matrix) {
+        float[][] rows = new float[mTotalNodeNum][];
+        for (int row = 0; row < mTotalNodeNum; ++row) {
+            rows[row] = Arrays.copyOfRange(matrix, row * mTotalNodeNum, (row + 1) * mTotalNodeNum);
+        }
+        return rows;
+    }
+
     /**
      * @param srcID the id of the source-node
      * @param destID the id of the destination-node
@@ -65,20 +390,26 @@ public class DelayMatrix_Float {
      */
     public float getDelay(int srcID, int destID) {
         // check the nodeIDs against internal array-boundarys
-        if (srcID > mTotalNodeNum || destID > mTotalNodeNum) {
-            throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+        if (srcID < 0 || destID < 0 || srcID >= mTotalNodeNum || destID >= mTotalNodeNum) {
+            throw new ArrayIndexOutOfBoundsException("srcID or destID is not a stored node-ID!");
         }
 
-        return mDelayMatrix[srcID][destID];
+        if (flatDelays != null) {
+            return flatDelays.getFloat(srcID, destID);
+        }
+        return delayRow(srcID)[destID];
     }
     
     public float getHopCount(int srcID, int destID) {
         // check the nodeIDs against internal array-boundarys
-        if (srcID > mTotalNodeNum || destID > mTotalNodeNum) {
-            throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+        if (srcID < 0 || destID < 0 || srcID >= mTotalNodeNum || destID >= mTotalNodeNum) {
+            throw new ArrayIndexOutOfBoundsException("srcID or destID is not a stored node-ID!");
         }
 
-        return mHopCountMatrix[srcID][destID];
+        if (flatHopCounts != null) {
+            return flatHopCounts.getFloat(srcID, destID);
+        }
+        return hopCountRow(srcID)[destID];
     }
 
     // ATAKAN: returns the id of the neighbour of the destination over which the source message arrives
@@ -86,7 +417,317 @@ public class DelayMatrix_Float {
         if (sourceId == destinationId) {
             return sourceId;
         }
-        return predecessorsMatrix[sourceId][destinationId];
+        if (sourceId < 0 || destinationId < 0 || sourceId >= mTotalNodeNum || destinationId >= mTotalNodeNum) {
+            throw new ArrayIndexOutOfBoundsException("sourceId or destinationId is not a stored node-ID!");
+        }
+        if (flatPredecessors != null) {
+            return flatPredecessors.getInt(sourceId, destinationId);
+        }
+        return predecessorRow(sourceId)[destinationId];
+    }
+
+    private float[] delayRow(int srcID) {
+        return rowCache == null ? mDelayMatrix[srcID] : row(srcID).delays;
+    }
+
+    private float[] hopCountRow(int srcID) {
+        return rowCache == null ? mHopCountMatrix[srcID] : row(srcID).hopCounts;
+    }
+
+    private int[] predecessorRow(int srcID) {
+        return rowCache == null ? predecessorsMatrix[srcID] : row(srcID).predecessors;
+    }
+
+    // ATAKAN: Lazy mode: gets a row, computing it if it is not kept. The matrix may be shared by
+    // simulations running in parallel, so the cache is locked.
+    private synchronized Row row(int srcID) {
+        Row row = rowCache.get(srcID);
+        if (row == null) {
+            row = new Row(mTotalNodeNum);
+            dijkstra.singleSourceShortestPaths(srcID, row.delays, row.hopCounts, row.predecessors);
+            rowCache.put(srcID, row);
+        }
+        return row;
+    }
+
+    /**
+     * Gets the number of nodes of the matrices.
+     *
+     * @return the number of nodes
+     */
+    public int getNumberOfNodes() {
+        return mTotalNodeNum;
+    }
+
+    /**
+     * Gets the algorithm that calculated the matrices.
+     *
+     * @return the algorithm
+     */
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    // ATAKAN: Incremental updates. The matrices follow the changes of the graph, made by the caller
+    // beforehand, instead of being computed again. A link that gets shorter or is added only improves
+    // the pairs whose source reaches its tail faster and whose destination is reached faster from its
+    // head, so those pairs are relaxed through it in O(n^2) at worst. A link that gets longer only
+    // changes the rows whose shortest path tree takes it, so those rows are computed again with
+    // Dijkstra. Floyd-Warshall gives hop counts for the delays as well, so its matrices take unit link
+    // delays and ignore delay changes. The lazy rows are dropped and computed again on use. The
+    // matrices may be shared by other simulations, which see the changes too.
+
+    /**
+     * Grows the matrices to the nodes of a graph. The new nodes are not
+     * linked to any other. The matrices are copied into larger ones only when
+     * they are full, by half their size each time, so that adding the nodes
+     * one by one takes amortized O(n) per node.
+     *
+     * @param graph the topological graph, with the new nodes added last
+     * @param directed true if the links are directed, false otherwise
+     * @throws UncheckedIOException if the grown matrices cannot be mapped
+     */
+    public void addNodes(TopologicalGraph graph, boolean directed) {
+        int size = graph.getNumberOfNodes();
+        if (rowCache != null) {
+            resetRows(graph, directed);
+            return;
+        }
+        if (size <= mTotalNodeNum) {
+            return;
+        }
+        int old = mTotalNodeNum;
+        if (flatDelays != null) {
+            if (size > flatDelays.getSize() || flatDelays.isReadOnly()) {
+                copyFlatMatrices(capacity(size, flatDelays.getSize()));
+            }
+            mTotalNodeNum = size;
+            for (int row = 0; row < size; ++row) {
+                for (int col = row < old ? old : 0; col < size; ++col) {
+                    setCell(row, col, row == col ? 0 : Float.MAX_VALUE, row == col ? 0 : Float.MAX_VALUE, -1);
+                }
+            }
+            return;
+        }
+        boolean aliased = mHopCountMatrix == mDelayMatrix;
+        mDelayMatrix = growRows(mDelayMatrix, old, size);
+        mHopCountMatrix = aliased ? mDelayMatrix : growRows(mHopCountMatrix, old, size);
+        int[][] predecessors = predecessorsMatrix;
+        if (predecessors.length < size) {
+            predecessors = Arrays.copyOf(predecessors, capacity(size, predecessors.length));
+        }
+        for (int row = 0; row < size; ++row) {
+            if (predecessors[row] == null || predecessors[row].length < size) {
+                int[] grown = new int[capacity(size, predecessors[row] == null ? 0 : predecessors[row].length)];
+                if (row < old) {
+                    System.arraycopy(predecessors[row], 0, grown, 0, old);
+                }
+                predecessors[row] = grown;
+            }
+            Arrays.fill(predecessors[row], row < old ? old : 0, size, -1);
+        }
+        predecessorsMatrix = predecessors;
+        mTotalNodeNum = size;
+    }
+
+    /**
+     * Updates the matrices with a link added to the graph, or a link whose
+     * delay got shorter.
+     *
+     * @param graph the topological graph, holding the link
+     * @param directed true if the links are directed, false otherwise
+     * @param srcID the id of the source-node
+     * @param destID the id of the destination-node
+     * @param delay the delay of the link
+     * @throws IllegalArgumentException if a node is out of the matrices
+     */
+    public void addLink(TopologicalGraph graph, boolean directed, int srcID, int destID, float delay) {
+        if (rowCache != null) {
+            resetRows(graph, directed);
+            return;
+        }
+        if (srcID < 0 || destID < 0 || srcID >= mTotalNodeNum || destID >= mTotalNodeNum) {
+            throw new IllegalArgumentException("The nodes of the link should be added first.");
+        }
+        makeWritable();
+        if (algorithm == Algorithm.FLOYD_WARSHALL) {
+            delay = 1;
+        }
+        relaxLink(srcID, destID, delay);
+        if (!directed) {
+            relaxLink(destID, srcID, delay);
+        }
+    }
+
+    /**
+     * Updates the matrices with a change of the delay between two nodes.
+     *
+     * @param graph the topological graph, holding the new delay
+     * @param directed true if the links are directed, false otherwise
+     * @param srcID the id of the source-node
+     * @param destID the id of the destination-node
+     * @param oldDelay the shortest delay of the links between the nodes
+     * before the change
+     * @param newDelay the shortest delay of the links between the nodes after
+     * the change
+     * @throws IllegalArgumentException if a node is out of the matrices
+     */
+    public void changeLinkDelay(TopologicalGraph graph, boolean directed, int srcID, int destID, float oldDelay,
+            float newDelay) {
+        if (rowCache != null) {
+            resetRows(graph, directed);
+            return;
+        }
+        if (newDelay < oldDelay) {
+            addLink(graph, directed, srcID, destID, newDelay);
+            return;
+        }
+        if (srcID < 0 || destID < 0 || srcID >= mTotalNodeNum || destID >= mTotalNodeNum) {
+            throw new IllegalArgumentException("The nodes of the link should be added first.");
+        }
+        if (newDelay == oldDelay || algorithm == Algorithm.FLOYD_WARSHALL) {
+            return;
+        }
+        makeWritable();
+        int[] rows = new int[mTotalNodeNum];
+        int numRows = 0;
+        for (int row = 0; row < mTotalNodeNum; ++row) {
+            if (predecessorAt(row, destID) == srcID || (!directed && predecessorAt(row, srcID) == destID)) {
+                rows[numRows++] = row;
+            }
+        }
+        AdjacencyGraph changed = new AdjacencyGraph(graph, directed);
+        rows = Arrays.copyOf(rows, numRows);
+        if (flatDelays != null) {
+            Dijkstra_Float.shortestPaths(changed, rows, flatDelays, flatHopCounts, flatPredecessors);
+        } else {
+            Dijkstra_Float.shortestPaths(changed, rows, mDelayMatrix, mHopCountMatrix, predecessorsMatrix);
+        }
+    }
+
+    // ATAKAN: relaxes the pairs through a link from srcID to destID.
+    private void relaxLink(int srcID, int destID, float delay) {
+        int n = mTotalNodeNum;
+        // the paths to the tail and from the head, which the relaxation does not change
+        float[] toSrcDelays = new float[n];
+        float[] toSrcHops = new float[n];
+        float[] fromDestDelays = new float[n];
+        float[] fromDestHops = new float[n];
+        int[] fromDestPredecessors = new int[n];
+        int[] sources = new int[n];
+        int[] targets = new int[n];
+        int numSources = 0;
+        int numTargets = 0;
+        for (int i = 0; i < n; ++i) {
+            toSrcDelays[i] = delayAt(i, srcID);
+            toSrcHops[i] = hopCountAt(i, srcID);
+            fromDestDelays[i] = delayAt(destID, i);
+            fromDestHops[i] = hopCountAt(destID, i);
+            fromDestPredecessors[i] = predecessorAt(destID, i);
+        }
+        for (int i = 0; i < n; ++i) {
+            if (toSrcDelays[i] != Float.MAX_VALUE
+                    && shorter(toSrcDelays[i] + delay, toSrcHops[i] + 1, delayAt(i, destID), hopCountAt(i, destID))) {
+                sources[numSources++] = i;
+            }
+            if (fromDestDelays[i] != Float.MAX_VALUE
+                    && shorter(delay + fromDestDelays[i], 1 + fromDestHops[i], delayAt(srcID, i), hopCountAt(srcID, i))) {
+                targets[numTargets++] = i;
+            }
+        }
+        for (int s = 0; s < numSources; ++s) {
+            int i = sources[s];
+            float delayToDest = toSrcDelays[i] + delay;
+            float hopsToDest = toSrcHops[i] + 1;
+            for (int t = 0; t < numTargets; ++t) {
+                int j = targets[t];
+                float d = delayToDest + fromDestDelays[j];
+                float h = hopsToDest + fromDestHops[j];
+                if (shorter(d, h, delayAt(i, j), hopCountAt(i, j))) {
+                    setCell(i, j, d, h, j == destID ? srcID : fromDestPredecessors[j]);
+                }
+            }
+        }
+    }
+
+    private static boolean shorter(float delay, float hopCount, float otherDelay, float otherHopCount) {
+        return delay < otherDelay || (delay == otherDelay && hopCount < otherHopCount);
+    }
+
+    private float delayAt(int srcID, int destID) {
+        return flatDelays != null ? flatDelays.getFloat(srcID, destID) : mDelayMatrix[srcID][destID];
+    }
+
+    private float hopCountAt(int srcID, int destID) {
+        return flatHopCounts != null ? flatHopCounts.getFloat(srcID, destID) : mHopCountMatrix[srcID][destID];
+    }
+
+    private int predecessorAt(int srcID, int destID) {
+        return flatPredecessors != null ? flatPredecessors.getInt(srcID, destID) : predecessorsMatrix[srcID][destID];
+    }
+
+    private void setCell(int srcID, int destID, float delay, float hopCount, int predecessor) {
+        if (flatDelays != null) {
+            flatDelays.setFloat(srcID, destID, delay);
+            flatHopCounts.setFloat(srcID, destID, hopCount);
+            flatPredecessors.setInt(srcID, destID, predecessor);
+        } else {
+            mDelayMatrix[srcID][destID] = delay;
+            mHopCountMatrix[srcID][destID] = hopCount;
+            predecessorsMatrix[srcID][destID] = predecessor;
+        }
+    }
+
+    // ATAKAN: copies the matrices mapped read-only, such as the cached ones, before they change.
+    private void makeWritable() {
+        if (flatDelays == null || !flatDelays.isReadOnly()) {
+            return;
+        }
+        copyFlatMatrices(flatDelays.getSize());
+    }
+
+    // ATAKAN: copies the nodes of the flat matrices into writable ones of a size. The replaced
+    // matrices are not unmapped, as the simulations sharing them may still read them: they are
+    // freed, with their temporary files, when they are collected.
+    private void copyFlatMatrices(int size) {
+        try {
+            flatDelays = copyFlatMatrix(flatDelays, mTotalNodeNum, size, storage);
+            flatHopCounts = copyFlatMatrix(flatHopCounts, mTotalNodeNum, size, storage);
+            flatPredecessors = copyFlatMatrix(flatPredecessors, mTotalNodeNum, size, storage);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The delay matrix cannot be mapped.", e);
+        }
+    }
+
+    // ATAKAN: the size of the matrices or rows that hold a number of nodes, growing by half.
+    private static int capacity(int nodes, int size) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(nodes, size + (size >> 1) + 1L));
+    }
+
+    private static float[][] growRows(float[][] matrix, int old, int size) {
+        float[][] grown = matrix.length < size ? Arrays.copyOf(matrix, capacity(size, matrix.length)) : matrix;
+        for (int row = 0; row < size; ++row) {
+            if (grown[row] == null || grown[row].length < size) {
+                float[] cells = new float[capacity(size, grown[row] == null ? 0 : grown[row].length)];
+                if (row < old) {
+                    System.arraycopy(grown[row], 0, cells, 0, old);
+                }
+                grown[row] = cells;
+            }
+            Arrays.fill(grown[row], row < old ? old : 0, size, Float.MAX_VALUE);
+            if (row >= old) {
+                grown[row][row] = 0;
+            }
+        }
+        return grown;
+    }
+
+    // ATAKAN: Lazy mode: computes the rows over the changed graph from now on.
+    private synchronized void resetRows(TopologicalGraph graph, boolean directed) {
+        mTotalNodeNum = graph.getNumberOfNodes();
+        adjacency = new AdjacencyGraph(graph, directed);
+        dijkstra = new Dijkstra_Float(adjacency);
+        rowCache.clear();
     }
 
     /**
@@ -190,10 +831,11 @@ public class DelayMatrix_Float {
             buffer.append("\n" + row);
 
             for (int col = 0; col < mTotalNodeNum; ++col) {
-                if (mDelayMatrix[row][col] == Float.MAX_VALUE) {
+                float delay = getDelay(row, col);
+                if (delay == Float.MAX_VALUE) {
                     buffer.append("\t" + "-");
                 } else {
-                    buffer.append("\t" + mDelayMatrix[row][col]);
+                    buffer.append("\t" + delay);
                 }
             }
         }
@@ -203,17 +845,26 @@ public class DelayMatrix_Float {
 
     public double getCentrality(int id) {
         double delay = 0.0;
-        for (int i = 0; i < mDelayMatrix[id].length; i++) {
-            delay += mDelayMatrix[id][i];
+        if (flatDelays != null) {
+            for (int i = 0; i < mTotalNodeNum; i++) {
+                delay += flatDelays.getFloat(id, i);
+            }
+            return delay;
+        }
+        float[] delays = delayRow(id);
+        for (int i = 0; i < mTotalNodeNum; i++) {
+            delay += delays[i];
         }
         return delay;
     }
 
     public int getMostCentralNode() {
+        // ATAKAN: Lazy mode: the sums are computed in parallel without keeping the rows.
+        double[] centralities = rowCache == null ? null : Dijkstra_Float.delaySums(adjacency);
         double minCentrality = Double.MAX_VALUE;
         int mostCentralNode = -1;
-        for (int j = 0; j < mDelayMatrix.length; j++) {
-            double centrality = getCentrality(j);
+        for (int j = 0; j < mTotalNodeNum; j++) {
+            double centrality = centralities == null ? getCentrality(j) : centralities[j];
             if (centrality < minCentrality) {
                 minCentrality = centrality;
                 mostCentralNode = j;
@@ -0,0 +1,373 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dijkstra algorithm to calculate the delay, hop count and predecessor from a source node to all
+ * the others over an {@link AdjacencyGraph}. The delay is minimised first and the hop count breaks
+ * the ties, so the hop count is the one of the path taken by a message. A source takes
+ * O((n + m) log n) time for n nodes and m links, so all the pairs of a sparse topology are
+ * computed much faster than with {@link FloydWarshall_Float}, and the sources are spread over the
+ * threads of the common fork/join pool.
+ * <p>
+ * The link delays must not be negative. As with {@link FloydWarshall_Float}, an unreachable node
+ * has a delay and a hop count of Float.MAX_VALUE and a predecessor of -1.
+ *
+ * @author Atakan
+ */
+public class Dijkstra_Float {
+
+	/** The number of sources computed by a task of the fork/join pool. */
+	private static final int SOURCES_PER_TASK = 16;
+
+	/** The heap position of a node that has not been reached. */
+	private static final int NOT_REACHED = -1;
+
+	/** The heap position of a node whose shortest path is known. */
+	private static final int SETTLED = -2;
+
+	/** The graph. */
+	private final AdjacencyGraph graph;
+
+	/** The reached nodes, ordered by delay then hop count. */
+	private final int[] heap;
+
+	/** The position of each node in the heap, or NOT_REACHED or SETTLED. */
+	private final int[] heapIndex;
+
+	/** The number of nodes in the heap. */
+	private int heapSize;
+
+	/** The delays of the source being computed. */
+	private float[] delay;
+
+	/** The hop counts of the source being computed. */
+	private float[] hops;
+
+	/**
+	 * Creates a new Dijkstra_Float. An instance keeps its working arrays between sources, so it
+	 * must not be shared between threads.
+	 *
+	 * @param graph the graph
+	 */
+	public Dijkstra_Float(AdjacencyGraph graph) {
+		this.graph = graph;
+		heap = new int[graph.getNumberOfNodes()];
+		heapIndex = new int[graph.getNumberOfNodes()];
+	}
+
+	/**
+	 * Calculates the shortest paths from a source to all nodes.
+	 *
+	 * @param source the source node
+	 * @param delayRow receives the delay to each node
+	 * @param hopRow receives the hop count to each node
+	 * @param predecessorRow receives the node preceding each node on its path, -1 for the source
+	 */
+	public void singleSourceShortestPaths(int source, float[] delayRow, float[] hopRow, int[] predecessorRow) {
+		Arrays.fill(delayRow, Float.MAX_VALUE);
+		Arrays.fill(hopRow, Float.MAX_VALUE);
+		Arrays.fill(predecessorRow, -1);
+		Arrays.fill(heapIndex, NOT_REACHED);
+		delay = delayRow;
+		hops = hopRow;
+		heapSize = 0;
+
+		delay[source] = 0;
+		hops[source] = 0;
+		push(source);
+		while (heapSize > 0) {
+			int u = pop();
+			for (int e = graph.getStart(u), end = graph.getEnd(u); e < end; e++) {
+				int v = graph.getTarget(e);
+				if (heapIndex[v] == SETTLED) {
+					continue;
+				}
+				float d = delay[u] + graph.getDelay(e);
+				float h = hops[u] + 1;
+				if (d < delay[v] || (d == delay[v] && h < hops[v])) {
+					delay[v] = d;
+					hops[v] = h;
+					predecessorRow[v] = u;
+					if (heapIndex[v] == NOT_REACHED) {
+						push(v);
+					} else {
+						siftUp(heapIndex[v]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates the shortest paths between all pairs of nodes, one source per row, in parallel.
+	 *
+	 * @param graph the graph
+	 * @param delays receives the delay rows, an array of one row per node
+	 * @param hopCounts receives the hop count rows, an array of one row per node
+	 * @param predecessors receives the predecessor rows, an array of one row per node
+	 */
+	public static void allPairsShortestPaths(AdjacencyGraph graph, float[][] delays, float[][] hopCounts,
+			int[][] predecessors) {
+		ForkJoinPool.commonPool().invoke(
+				new SourcesTask(graph, null, delays, hopCounts, predecessors, 0, graph.getNumberOfNodes()));
+	}
+
+	/**
+	 * Calculates the shortest paths between all pairs of nodes into flat matrices, one source per
+	 * row, in parallel. The rows are computed in working arrays and copied, so no row is kept on
+	 * the heap.
+	 *
+	 * @param graph the graph
+	 * @param delays receives the delays
+	 * @param hopCounts receives the hop counts
+	 * @param predecessors receives the predecessors
+	 */
+	public static void allPairsShortestPaths(AdjacencyGraph graph, FlatMatrix delays, FlatMatrix hopCounts,
+			FlatMatrix predecessors) {
+		ForkJoinPool.commonPool().invoke(
+				new SourcesTask(graph, null, delays, hopCounts, predecessors, 0, graph.getNumberOfNodes()));
+	}
+
+	/**
+	 * Calculates the shortest paths from some sources to all nodes, in parallel, replacing their
+	 * rows.
+	 *
+	 * @param graph the graph
+	 * @param sources the sources
+	 * @param delays receives the delay rows of the sources
+	 * @param hopCounts receives the hop count rows of the sources
+	 * @param predecessors receives the predecessor rows of the sources
+	 */
+	public static void shortestPaths(AdjacencyGraph graph, int[] sources, float[][] delays, float[][] hopCounts,
+			int[][] predecessors) {
+		ForkJoinPool.commonPool().invoke(
+				new SourcesTask(graph, sources, delays, hopCounts, predecessors, 0, sources.length));
+	}
+
+	/**
+	 * Calculates the shortest paths from some sources to all nodes into flat matrices, in
+	 * parallel, replacing their rows.
+	 *
+	 * @param graph the graph
+	 * @param sources the sources
+	 * @param delays receives the delays
+	 * @param hopCounts receives the hop counts
+	 * @param predecessors receives the predecessors
+	 */
+	public static void shortestPaths(AdjacencyGraph graph, int[] sources, FlatMatrix delays, FlatMatrix hopCounts,
+			FlatMatrix predecessors) {
+		ForkJoinPool.commonPool().invoke(
+				new SourcesTask(graph, sources, delays, hopCounts, predecessors, 0, sources.length));
+	}
+
+	/**
+	 * Calculates the sum of the delays from each node to all nodes, in parallel, without keeping
+	 * the rows.
+	 *
+	 * @param graph the graph
+	 * @return the sum of the delays of each source
+	 */
+	public static double[] delaySums(AdjacencyGraph graph) {
+		double[] sums = new double[graph.getNumberOfNodes()];
+		ForkJoinPool.commonPool().invoke(new SourcesTask(graph, null, sums, 0, graph.getNumberOfNodes()));
+		return sums;
+	}
+
+	/**
+	 * The computation of a range of sources, all the nodes or the given ones, keeping either their
+	 * rows, in arrays or in flat matrices, or the sums of their delays.
+	 */
+	private static final class SourcesTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final AdjacencyGraph graph;
+
+		private final int[] sources;
+
+		private final float[][] delays;
+
+		private final float[][] hopCounts;
+
+		private final int[][] predecessors;
+
+		private final FlatMatrix flatDelays;
+
+		private final FlatMatrix flatHopCounts;
+
+		private final FlatMatrix flatPredecessors;
+
+		private final double[] sums;
+
+		private final int from;
+
+		private final int to;
+
+		SourcesTask(AdjacencyGraph graph, int[] sources, float[][] delays, float[][] hopCounts,
+				int[][] predecessors, int from, int to) {
+			this.graph = graph;
+			this.sources = sources;
+			this.delays = delays;
+			this.hopCounts = hopCounts;
+			this.predecessors = predecessors;
+			this.flatDelays = null;
+			this.flatHopCounts = null;
+			this.flatPredecessors = null;
+			this.sums = null;
+			this.from = from;
+			this.to = to;
+		}
+
+		SourcesTask(AdjacencyGraph graph, int[] sources, FlatMatrix delays, FlatMatrix hopCounts,
+				FlatMatrix predecessors, int from, int to) {
+			this.graph = graph;
+			this.sources = sources;
+			this.delays = null;
+			this.hopCounts = null;
+			this.predecessors = null;
+			this.flatDelays = delays;
+			this.flatHopCounts = hopCounts;
+			this.flatPredecessors = predecessors;
+			this.sums = null;
+			this.from = from;
+			this.to = to;
+		}
+
+		SourcesTask(AdjacencyGraph graph, int[] sources, double[] sums, int from, int to) {
+			this.graph = graph;
+			this.sources = sources;
+			this.delays = null;
+			this.hopCounts = null;
+			this.predecessors = null;
+			this.flatDelays = null;
+			this.flatHopCounts = null;
+			this.flatPredecessors = null;
+			this.sums = sums;
+			this.from = from;
+			this.to = to;
+		}
+
+		private SourcesTask split(int from, int to) {
+			if (sums != null) {
+				return new SourcesTask(graph, sources, sums, from, to);
+			}
+			return delays != null ? new SourcesTask(graph, sources, delays, hopCounts, predecessors, from, to)
+					: new SourcesTask(graph, sources, flatDelays, flatHopCounts, flatPredecessors, from, to);
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > SOURCES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(split(from, middle), split(middle, to));
+				return;
+			}
+			int n = graph.getNumberOfNodes();
+			Dijkstra_Float dijkstra = new Dijkstra_Float(graph);
+			if (delays == null) {
+				float[] delayRow = new float[n];
+				float[] hopRow = new float[n];
+				int[] predecessorRow = new int[n];
+				for (int k = from; k < to; k++) {
+					int source = sources == null ? k : sources[k];
+					dijkstra.singleSourceShortestPaths(source, delayRow, hopRow, predecessorRow);
+					if (sums == null) {
+						flatDelays.setRow(source, delayRow, 0, n);
+						flatHopCounts.setRow(source, hopRow, 0, n);
+						flatPredecessors.setRow(source, predecessorRow, 0, n);
+						continue;
+					}
+					double sum = 0.0;
+					for (int i = 0; i < n; i++) {
+						sum += delayRow[i];
+					}
+					sums[source] = sum;
+				}
+				return;
+			}
+			for (int k = from; k < to; k++) {
+				int source = sources == null ? k : sources[k];
+				// the rows long enough are reused, their cells past the nodes being left unused
+				if (delays[source] == null || delays[source].length < n) {
+					delays[source] = new float[n];
+				}
+				if (hopCounts[source] == null || hopCounts[source].length < n) {
+					hopCounts[source] = new float[n];
+				}
+				if (predecessors[source] == null || predecessors[source].length < n) {
+					predecessors[source] = new int[n];
+				}
+				dijkstra.singleSourceShortestPaths(source, delays[source], hopCounts[source], predecessors[source]);
+			}
+		}
+	}
+
+	private boolean before(int a, int b) {
+		return delay[a] < delay[b] || (delay[a] == delay[b] && hops[a] < hops[b]);
+	}
+
+	private void push(int node) {
+		heap[heapSize] = node;
+		heapIndex[node] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private int pop() {
+		int top = heap[0];
+		heapIndex[top] = SETTLED;
+		if (--heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	private void siftUp(int i) {
+		int node = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(node, heap[parent])) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heapIndex[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		heapIndex[node] = i;
+	}
+
+	private void siftDown(int i) {
+		int node = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], node)) {
+				break;
+			}
+			heap[i] = heap[child];
+			heapIndex[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = node;
+		heapIndex[node] = i;
+	}
+
+}
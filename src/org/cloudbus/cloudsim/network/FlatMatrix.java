@@ -0,0 +1,273 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * FlatMatrix is a square matrix of 4-byte cells, read as floats or ints, stored row-major in byte
+ * buffers instead of one array per row. The buffers are on the heap, off the heap, or mapped from
+ * a file, in which case the matrix takes no heap and its pages are shared by all the processes
+ * mapping the file. A buffer holds at most 2^31 bytes, so a large matrix is split into segments of
+ * whole rows.
+ * <p>
+ * The reads are absolute, so a matrix may be read by several threads once it is filled. A cell
+ * out of the matrix throws an IndexOutOfBoundsException, as an array would.
+ *
+ * @author Atakan
+ */
+public class FlatMatrix {
+
+	/** The size of a cell, in bytes. */
+	public static final int CELL_BYTES = 4;
+
+	/** The byte order of the cells, also the one of the mapped files. */
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/** The maximum size of a segment, in bytes. */
+	private static final long SEGMENT_BYTES = 1L << 30;
+
+	/** The temporary files that could not be deleted while mapped, retried by the next mappings. */
+	private static final List<File> UNDELETED_FILES = new ArrayList<File>();
+
+	/** The number of rows and columns. */
+	private final int size;
+
+	/** The number of rows of a segment. */
+	private final int rowsPerSegment;
+
+	/** The segments. */
+	private final ByteBuffer[] segments;
+
+	private FlatMatrix(int size, ByteBuffer[] segments) {
+		this.size = size;
+		this.rowsPerSegment = rowsPerSegment(size);
+		this.segments = segments;
+	}
+
+	/**
+	 * Creates a matrix filled with zeros.
+	 *
+	 * @param size the number of rows and columns
+	 * @param direct true to store the matrix off the heap, false to store it on the heap
+	 * @return the matrix
+	 */
+	public static FlatMatrix allocate(int size, boolean direct) {
+		ByteBuffer[] segments = new ByteBuffer[segmentCount(size)];
+		for (int i = 0; i < segments.length; i++) {
+			int bytes = (int) segmentBytes(size, i);
+			segments[i] = (direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ORDER);
+		}
+		return new FlatMatrix(size, segments);
+	}
+
+	/**
+	 * Maps a matrix from a file. The mapping stays valid after the channel is closed.
+	 *
+	 * @param channel the file
+	 * @param position the position of the matrix in the file
+	 * @param size the number of rows and columns
+	 * @param mode READ_ONLY to share a matrix already written, READ_WRITE to fill it
+	 * @return the matrix
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public static FlatMatrix map(FileChannel channel, long position, int size, FileChannel.MapMode mode)
+			throws IOException {
+		ByteBuffer[] segments = new ByteBuffer[segmentCount(size)];
+		for (int i = 0; i < segments.length; i++) {
+			long bytes = segmentBytes(size, i);
+			segments[i] = channel.map(mode, position, bytes).order(ORDER);
+			position += bytes;
+		}
+		return new FlatMatrix(size, segments);
+	}
+
+	/**
+	 * Creates a matrix mapped from a temporary file. The file is deleted once mapped, so its
+	 * space is freed as soon as the matrix is collected. On the platforms that do not delete a
+	 * mapped file, it is deleted by a later call once the matrix is collected, or when the
+	 * virtual machine exits.
+	 *
+	 * @param size the number of rows and columns
+	 * @return the matrix, filled with zeros
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public static FlatMatrix mapTemporary(int size) throws IOException {
+		deleteUndeletedFiles();
+		File file = File.createTempFile("matrix", ".bin");
+		FlatMatrix matrix = null;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(byteSize(size));
+				matrix = map(raf.getChannel(), 0, size, FileChannel.MapMode.READ_WRITE);
+			} finally {
+				raf.close();
+			}
+		} finally {
+			if (!file.delete() && file.exists()) {
+				file.deleteOnExit();
+				synchronized (UNDELETED_FILES) {
+					UNDELETED_FILES.add(file);
+				}
+			}
+		}
+		return matrix;
+	}
+
+	private static void deleteUndeletedFiles() {
+		synchronized (UNDELETED_FILES) {
+			Iterator<File> iter = UNDELETED_FILES.iterator();
+			while (iter.hasNext()) {
+				File file = iter.next();
+				if (file.delete() || !file.exists()) {
+					iter.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of bytes of a matrix.
+	 *
+	 * @param size the number of rows and columns
+	 * @return the number of bytes
+	 */
+	public static long byteSize(int size) {
+		return (long) size * size * CELL_BYTES;
+	}
+
+	/**
+	 * Gets the number of rows and columns.
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Tells whether the matrix is mapped read-only.
+	 *
+	 * @return true, if the cells cannot be set
+	 */
+	public boolean isReadOnly() {
+		return segments.length > 0 && segments[0].isReadOnly();
+	}
+
+	public float getFloat(int row, int column) {
+		int index = index(row, column);
+		return segments[row / rowsPerSegment].getFloat(index);
+	}
+
+	public int getInt(int row, int column) {
+		int index = index(row, column);
+		return segments[row / rowsPerSegment].getInt(index);
+	}
+
+	public void setFloat(int row, int column, float value) {
+		int index = index(row, column);
+		segments[row / rowsPerSegment].putFloat(index, value);
+	}
+
+	public void setInt(int row, int column, int value) {
+		int index = index(row, column);
+		segments[row / rowsPerSegment].putInt(index, value);
+	}
+
+	/**
+	 * Sets a row from an array.
+	 *
+	 * @param row the row
+	 * @param values the array
+	 * @param offset the position of the row in the array
+	 */
+	public void setRow(int row, float[] values, int offset) {
+		setRow(row, values, offset, size);
+	}
+
+	/**
+	 * Sets the first cells of a row from an array.
+	 *
+	 * @param row the row
+	 * @param values the array
+	 * @param offset the position of the row in the array
+	 * @param length the number of cells
+	 */
+	public void setRow(int row, float[] values, int offset, int length) {
+		if (length < 0 || length > size) {
+			throw new IndexOutOfBoundsException("Row of " + length + " cells is out of the matrix.");
+		}
+		int index = index(row, 0);
+		ByteBuffer segment = segments[row / rowsPerSegment];
+		for (int column = 0; column < length; column++, index += CELL_BYTES) {
+			segment.putFloat(index, values[offset + column]);
+		}
+	}
+
+	/**
+	 * Sets a row from an array.
+	 *
+	 * @param row the row
+	 * @param values the array
+	 * @param offset the position of the row in the array
+	 */
+	public void setRow(int row, int[] values, int offset) {
+		setRow(row, values, offset, size);
+	}
+
+	/**
+	 * Sets the first cells of a row from an array.
+	 *
+	 * @param row the row
+	 * @param values the array
+	 * @param offset the position of the row in the array
+	 * @param length the number of cells
+	 */
+	public void setRow(int row, int[] values, int offset, int length) {
+		if (length < 0 || length > size) {
+			throw new IndexOutOfBoundsException("Row of " + length + " cells is out of the matrix.");
+		}
+		int index = index(row, 0);
+		ByteBuffer segment = segments[row / rowsPerSegment];
+		for (int column = 0; column < length; column++, index += CELL_BYTES) {
+			segment.putInt(index, values[offset + column]);
+		}
+	}
+
+	private int index(int row, int column) {
+		if (row < 0 || row >= size || column < 0 || column >= size) {
+			throw new IndexOutOfBoundsException("Cell (" + row + ", " + column + ") is out of the matrix.");
+		}
+		return ((row % rowsPerSegment) * size + column) * CELL_BYTES;
+	}
+
+	private static int rowsPerSegment(int size) {
+		return (int) Math.max(1, Math.min(size, SEGMENT_BYTES / ((long) Math.max(1, size) * CELL_BYTES)));
+	}
+
+	private static int segmentCount(int size) {
+		int rows = rowsPerSegment(size);
+		return (size + rows - 1) / rows;
+	}
+
+	private static long segmentBytes(int size, int segment) {
+		int rows = rowsPerSegment(size);
+		return (long) Math.min(rows, size - segment * rows) * size * CELL_BYTES;
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * MatrixCache keeps the delay, hop count and predecessor matrices of topologies in a
+ * directory, so that runs over the same topology skip the shortest path computation. A topology is
+ * identified by a SHA-256 digest of its links, including the ones added to the file, and of the
+ * algorithm, so a change of either one is a different entry.
+ * <p>
+ * An entry is one file: a header of {@link #HEADER_BYTES} bytes (the magic number, the format
+ * version, the number of nodes, the algorithm and the digest) followed by the three matrices as {@link FlatMatrix}
+ * cells. A reused entry is mapped read-only, so it takes no heap and the runs on the same machine
+ * share its pages. An entry is written to a temporary file and renamed, so a run never maps a file
+ * being written by another one.
+ *
+ * @author Atakan
+ */
+public class MatrixCache {
+
+	/** The version of the file format, to change whenever the format or the algorithms change. */
+	public static final int VERSION = 3;
+
+	/** The size of the header of a file. */
+	public static final int HEADER_BYTES = 64;
+
+	/** The first bytes of a file. */
+	private static final int MAGIC = 0x44434d58;
+
+	/** The number of matrices of an entry: the delays, the hop counts and the predecessors. */
+	private static final int MATRICES = 3;
+
+	/** The size of the digest. */
+	private static final int DIGEST_BYTES = 32;
+
+	/** The directory of the files. */
+	private final File directory;
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param directory the directory of the files, created when the first entry is stored
+	 */
+	public MatrixCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the key of a topology.
+	 *
+	 * @param graph the topological graph
+	 * @param directed true if the links are directed, false if each link also goes back
+	 * @param algorithm the algorithm that calculates the shortest paths
+	 * @return the digest of the topology
+	 */
+	public static byte[] key(TopologicalGraph graph, boolean directed, DelayMatrix_Float.Algorithm algorithm) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		buffer.putInt(VERSION).putInt(graph.getNumberOfNodes()).putInt(directed ? 1 : 0).putInt(algorithm.ordinal());
+		digest.update(buffer.array());
+		Iterator<TopologicalLink> iter = graph.getLinkIterator();
+		while (iter.hasNext()) {
+			TopologicalLink link = iter.next();
+			buffer.clear();
+			buffer.putInt(link.getSrcNodeID()).putInt(link.getDestNodeID());
+			buffer.putFloat(link.getLinkDelay()).putFloat(link.getLinkBw());
+			digest.update(buffer.array());
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Gets the file of an entry.
+	 *
+	 * @param key the digest of the topology
+	 * @return the file
+	 */
+	public File getFile(byte[] key) {
+		StringBuilder name = new StringBuilder("matrices-");
+		for (byte b : key) {
+			name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return new File(directory, name.append(".bin").toString());
+	}
+
+	/**
+	 * Maps the matrices of a topology, if they are stored.
+	 *
+	 * @param key the digest of the topology
+	 * @param nodes the number of nodes
+	 * @return the matrices, read-only, or null if they are not stored or the file is not valid
+	 * @throws IOException if the file exists but cannot be read
+	 */
+	public DelayMatrix_Float load(byte[] key, int nodes) throws IOException {
+		File file = getFile(key);
+		if (!file.isFile() || file.length() != fileSize(nodes)) {
+			return null;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(FlatMatrix.ORDER);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION
+					|| header.getInt() != nodes) {
+				return null;
+			}
+			int algorithm = header.getInt();
+			if (algorithm < 0 || algorithm >= DelayMatrix_Float.Algorithm.values().length) {
+				return null;
+			}
+			byte[] stored = new byte[DIGEST_BYTES];
+			header.get(stored);
+			if (!Arrays.equals(stored, key)) {
+				return null;
+			}
+			FlatMatrix[] matrices = new FlatMatrix[MATRICES];
+			for (int i = 0; i < matrices.length; i++) {
+				matrices[i] = FlatMatrix.map(channel, position(nodes, i), nodes, FileChannel.MapMode.READ_ONLY);
+			}
+			return new DelayMatrix_Float(matrices[0], matrices[1], matrices[2],
+					DelayMatrix_Float.Algorithm.values()[algorithm], DelayMatrix_Float.Storage.MAPPED);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Stores the matrices of a topology, replacing the ones stored before.
+	 *
+	 * @param key the digest of the topology
+	 * @param delayMatrix the delay, hop count and predecessor matrices
+	 * @return the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public File store(byte[] key, DelayMatrix_Float delayMatrix) throws IOException {
+		int nodes = delayMatrix.getNumberOfNodes();
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+		File temp = File.createTempFile("matrices", ".tmp", directory);
+		try {
+			RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+			try {
+				FileChannel channel = raf.getChannel();
+				// written rather than mapped: a mapped file cannot be renamed on some platforms
+				ByteBuffer row = ByteBuffer.allocate(nodes * FlatMatrix.CELL_BYTES).order(FlatMatrix.ORDER);
+				for (int matrix = 0; matrix < MATRICES; matrix++) {
+					long position = position(nodes, matrix);
+					for (int src = 0; src < nodes; src++) {
+						row.clear();
+						for (int dest = 0; dest < nodes; dest++) {
+							if (matrix == 0) {
+								row.putFloat(delayMatrix.getDelay(src, dest));
+							} else if (matrix == 1) {
+								row.putFloat(delayMatrix.getHopCount(src, dest));
+							} else {
+								row.putInt(delayMatrix.getSourceNeighbour(src, dest));
+							}
+						}
+						row.flip();
+						while (row.hasRemaining()) {
+							position += channel.write(row, position);
+						}
+					}
+				}
+				// the header goes last, so a file cut short is not valid
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(FlatMatrix.ORDER);
+				header.putInt(MAGIC).putInt(VERSION).putInt(nodes).putInt(delayMatrix.getAlgorithm().ordinal()).put(key);
+				header.clear();
+				long position = 0;
+				while (header.hasRemaining()) {
+					position += channel.write(header, position);
+				}
+				channel.force(true);
+			} finally {
+				raf.close();
+			}
+			File file = getFile(key);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			return file;
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private static long position(int nodes, int matrix) {
+		return HEADER_BYTES + matrix * FlatMatrix.byteSize(nodes);
+	}
+
+	private static long fileSize(int nodes) {
+		return position(nodes, MATRICES);
+	}
+
+}
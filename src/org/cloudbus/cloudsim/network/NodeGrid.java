@@ -0,0 +1,230 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * NodeGrid is a uniform grid over the coordinates of the nodes of a topological graph that finds
+ * the node closest to a point. The bounding box of the nodes is split into about one cell per two
+ * nodes, and a query scans the cells in rings around the cell of the point until no cell left can
+ * hold a closer node, so it reads a few cells instead of all the nodes when the nodes are spread.
+ * <p>
+ * Nodes can be removed, for instance when they cannot take more clients. Among nodes at the same
+ * distance, the one that comes first in the node list of the graph is returned, as a linear scan of
+ * the graph would.
+ *
+ * @author Atakan
+ */
+public class NodeGrid {
+
+	/** The relative margin of the pruning distance, against rounding errors. */
+	private static final double MARGIN = 1e-9;
+
+	/** The node ids, in the order of the graph. */
+	private final int[] nodeIds;
+
+	/** The x coordinates, in the order of the graph. */
+	private final double[] xs;
+
+	/** The y coordinates, in the order of the graph. */
+	private final double[] ys;
+
+	/** The position in the graph order of each node id, -1 if there is no such node. */
+	private final int[] orderOfNode;
+
+	/** The left and bottom of the grid. */
+	private final double minX, minY;
+
+	/** The size of a cell. */
+	private final double cellWidth, cellHeight;
+
+	/** The number of columns and rows of cells. */
+	private final int columns, rows;
+
+	/** The nodes of each cell, by graph order. */
+	private final int[][] cells;
+
+	/** The number of nodes left in each cell. */
+	private final int[] cellSizes;
+
+	/** The cell of each node. */
+	private final int[] cellOf;
+
+	/** The position of each node in its cell, -1 once removed. */
+	private final int[] slotOf;
+
+	/** The number of nodes left. */
+	private int size;
+
+	/**
+	 * Creates a grid holding all the nodes of a graph.
+	 *
+	 * @param graph the topological graph
+	 */
+	public NodeGrid(TopologicalGraph graph) {
+		int n = graph.getNumberOfNodes();
+		nodeIds = new int[n];
+		xs = new double[n];
+		ys = new double[n];
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double lowX = Double.POSITIVE_INFINITY, lowY = Double.POSITIVE_INFINITY;
+		int maxId = -1;
+		Iterator<TopologicalNode> iter = graph.getNodeIterator();
+		for (int k = 0; k < n; k++) {
+			TopologicalNode node = iter.next();
+			nodeIds[k] = node.getNodeID();
+			xs[k] = node.getCoordinateX();
+			ys[k] = node.getCoordinateY();
+			lowX = Math.min(lowX, xs[k]);
+			lowY = Math.min(lowY, ys[k]);
+			maxX = Math.max(maxX, xs[k]);
+			maxY = Math.max(maxY, ys[k]);
+			maxId = Math.max(maxId, nodeIds[k]);
+		}
+		orderOfNode = new int[maxId + 1];
+		Arrays.fill(orderOfNode, -1);
+		for (int k = 0; k < n; k++) {
+			orderOfNode[nodeIds[k]] = k;
+		}
+
+		int side = Math.max(1, (int) Math.ceil(Math.sqrt(n / 2.0)));
+		columns = side;
+		rows = side;
+		minX = n == 0 ? 0 : lowX;
+		minY = n == 0 ? 0 : lowY;
+		cellWidth = n == 0 || maxX == lowX ? 1 : (maxX - lowX) / columns;
+		cellHeight = n == 0 || maxY == lowY ? 1 : (maxY - lowY) / rows;
+
+		cellOf = new int[n];
+		slotOf = new int[n];
+		cellSizes = new int[columns * rows];
+		for (int k = 0; k < n; k++) {
+			cellOf[k] = cell(column(xs[k]), row(ys[k]));
+			cellSizes[cellOf[k]]++;
+		}
+		cells = new int[columns * rows][];
+		for (int c = 0; c < cells.length; c++) {
+			cells[c] = new int[cellSizes[c]];
+			cellSizes[c] = 0;
+		}
+		for (int k = 0; k < n; k++) {
+			int c = cellOf[k];
+			slotOf[k] = cellSizes[c];
+			cells[c][cellSizes[c]++] = k;
+		}
+		size = n;
+	}
+
+	/**
+	 * Finds the node closest to a point.
+	 *
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return the node id, or -1 if no node is left
+	 */
+	public int nearest(double x, double y) {
+		if (size == 0) {
+			return -1;
+		}
+		int cx = column(x);
+		int cy = row(y);
+		int best = -1;
+		double bestError = Double.MAX_VALUE;
+		for (int r = 0;; r++) {
+			for (int j = Math.max(0, cy - r); j <= Math.min(rows - 1, cy + r); j++) {
+				boolean edgeRow = j == cy - r || j == cy + r;
+				for (int i = Math.max(0, cx - r); i <= Math.min(columns - 1, cx + r); i++) {
+					if (!edgeRow && i != cx - r && i != cx + r) {
+						// inside the ring, already scanned
+						i = cx + r - 1;
+						continue;
+					}
+					int c = cell(i, j);
+					for (int s = 0; s < cellSizes[c]; s++) {
+						int k = cells[c][s];
+						double error = Math.pow(x - xs[k], 2) + Math.pow(y - ys[k], 2);
+						if (error < bestError || (error == bestError && k < best)) {
+							best = k;
+							bestError = error;
+						}
+					}
+				}
+			}
+			boolean left = cx - r > 0, right = cx + r < columns - 1;
+			boolean down = cy - r > 0, up = cy + r < rows - 1;
+			if (!left && !right && !down && !up) {
+				break;
+			}
+			if (best >= 0) {
+				// the closest point outside the scanned cells
+				double bound = Double.MAX_VALUE;
+				if (left) {
+					bound = Math.min(bound, x - (minX + (cx - r) * cellWidth));
+				}
+				if (right) {
+					bound = Math.min(bound, minX + (cx + r + 1) * cellWidth - x);
+				}
+				if (down) {
+					bound = Math.min(bound, y - (minY + (cy - r) * cellHeight));
+				}
+				if (up) {
+					bound = Math.min(bound, minY + (cy + r + 1) * cellHeight - y);
+				}
+				if (bound > 0 && bound * bound > bestError * (1 + MARGIN)) {
+					break;
+				}
+			}
+		}
+		return best < 0 ? -1 : nodeIds[best];
+	}
+
+	/**
+	 * Removes a node.
+	 *
+	 * @param nodeId the node id
+	 * @return true, if the node was in the grid
+	 */
+	public boolean remove(int nodeId) {
+		int k = nodeId >= 0 && nodeId < orderOfNode.length ? orderOfNode[nodeId] : -1;
+		if (k < 0 || slotOf[k] < 0) {
+			return false;
+		}
+		int c = cellOf[k];
+		int last = cells[c][--cellSizes[c]];
+		cells[c][slotOf[k]] = last;
+		slotOf[last] = slotOf[k];
+		slotOf[k] = -1;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Gets the number of nodes left.
+	 *
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int column(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellWidth)));
+	}
+
+	private int row(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellHeight)));
+	}
+
+	private int cell(int column, int row) {
+		return row * columns + column;
+	}
+
+}
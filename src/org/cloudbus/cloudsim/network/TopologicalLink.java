@@ -71,6 +71,15 @@ public class TopologicalLink {
 		return linkDelay;
 	}
 
+	/**
+	 * sets the link-delay of the defined link, for instance when the link degrades
+	 * 
+	 * @param delay the delay-amount
+	 */
+	public void setLinkDelay(float delay) {
+		linkDelay = delay;
+	}
+
 	/**
 	 * return the link-bw of the defined linke
 	 * 
@@ -0,0 +1,433 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.util.IntIntMap;
+
+/**
+ * TopologyReader reads a topology file into a {@link CompactGraph}. The file is streamed through a
+ * byte buffer and the numbers are decoded from the bytes, so no line, token or object is kept per
+ * node or link. The formats are:
+ * <ul>
+ * <li>BRITE, as read by {@link GraphReaderBrite}: the node lines after "Nodes:" (NodeID, xpos, ypos,
+ * ...) and the edge lines after "Edges:" (EdgeID, fromNode, toNode, euclideanLength, linkDelay,
+ * linkBandwith, ...). The bandwidth is truncated to an integer, as GraphReaderBrite does.</li>
+ * <li>Edge list: one "fromNode toNode [linkDelay [linkBandwith]]" line per link, the nodes being
+ * numbered from 0.</li>
+ * <li>CAIDA AS relationships: one "AS1|AS2|relationship[|source]" line per link. The AS numbers
+ * become nodes in order of appearance, labelled with the AS number.</li>
+ * </ul>
+ * The lines starting with '#' are comments in the last two formats, and so are the ones starting with
+ * '%' in edge lists. A link without a delay or a bandwidth takes the default ones.
+ *
+ * @author Atakan
+ */
+public class TopologyReader implements GraphReaderIF {
+
+	/**
+	 * The file formats.
+	 */
+	public enum Format {
+		BRITE, EDGE_LIST, CAIDA_AS_RELATIONSHIPS
+	}
+
+	/** The size of the read buffer, the longest line it holds before it grows. */
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	/** The powers of ten that are exact floats. */
+	private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+			1e10f};
+
+	private static final byte[] NODES = "Nodes:".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] EDGES = "Edges:".getBytes(StandardCharsets.US_ASCII);
+
+	/** The format. */
+	private final Format format;
+
+	/** The delay of the links without one. */
+	private float defaultDelay = 1;
+
+	/** The bandwidth of the links without one. */
+	private float defaultBw = 1;
+
+	/** The stream being read. */
+	private InputStream in;
+
+	/** The bytes read, and the first byte after them. */
+	private byte[] buffer;
+
+	private int limit;
+
+	/** The current line, and its first byte after the one being parsed. */
+	private int lineStart, lineEnd, position;
+
+	/** The number of the current line, for the errors. */
+	private int lineNumber;
+
+	/** The current token. */
+	private int tokenStart, tokenEnd;
+
+	/**
+	 * Creates a reader.
+	 *
+	 * @param format the format of the files
+	 */
+	public TopologyReader(Format format) {
+		this.format = format;
+	}
+
+	/**
+	 * Sets the delay and bandwidth of the links that do not give them.
+	 *
+	 * @param delay the delay
+	 * @param bw the bandwidth
+	 */
+	public void setDefaultLink(float delay, float bw) {
+		defaultDelay = delay;
+		defaultBw = bw;
+	}
+
+	/**
+	 * Reads a file into an object graph.
+	 *
+	 * @param filename name of the file to read
+	 * @return created TopologicalGraph
+	 * @throws IOException if the file cannot be read or parsed
+	 */
+	@Override
+	public TopologicalGraph readGraphFile(String filename) throws IOException {
+		return read(filename).toTopologicalGraph();
+	}
+
+	/**
+	 * Reads a file.
+	 *
+	 * @param filename name of the file to read
+	 * @return the graph
+	 * @throws IOException if the file cannot be read or parsed
+	 */
+	public CompactGraph read(String filename) throws IOException {
+		InputStream stream = new FileInputStream(filename);
+		try {
+			return read(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Reads a stream, without closing it.
+	 *
+	 * @param stream the stream
+	 * @return the graph
+	 * @throws IOException if the stream cannot be read or parsed
+	 */
+	public CompactGraph read(InputStream stream) throws IOException {
+		in = stream;
+		buffer = new byte[BUFFER_BYTES];
+		limit = 0;
+		lineEnd = 0;
+		lineNumber = 0;
+		CompactGraph graph = new CompactGraph(1024, 4096);
+		try {
+			switch (format) {
+				case BRITE:
+					readBrite(graph);
+					break;
+				case EDGE_LIST:
+					readEdgeList(graph);
+					break;
+				default:
+					readAsRelationships(graph);
+					break;
+			}
+		} finally {
+			in = null;
+			buffer = null;
+		}
+		graph.trimToSize();
+		return graph;
+	}
+
+	private void readBrite(CompactGraph graph) throws IOException {
+		// the file ids of the nodes, mapped to their positions
+		IntIntMap nodes = new IntIntMap(-1);
+		boolean nodeSection = false;
+		boolean edgeSection = false;
+		while (nextLine()) {
+			if (!nodeSection && !edgeSection) {
+				nodeSection = lineContains(NODES);
+			} else if (nodeSection && lineContains(EDGES)) {
+				nodeSection = false;
+				edgeSection = true;
+			} else if (nextToken()) {
+				if (nodeSection) {
+					// NodeID, xpos, ypos
+					int id = parseInt();
+					int x = nextToken() ? parseInt() : 0;
+					int y = nextToken() ? parseInt() : 0;
+					nodes.put(id, graph.addNode(id, x, y));
+				} else {
+					// EdgeID, fromNode, toNode, euclideanLength, linkDelay, linkBandwith
+					int from = nextToken() ? node(nodes, parseInt()) : node(nodes, 0);
+					int to = nextToken() ? node(nodes, parseInt()) : node(nodes, 0);
+					nextToken();
+					float delay = nextToken() ? parseFloat() : 0;
+					float bw = nextToken() ? (int) parseFloat() : 0;
+					graph.addLink(from, to, delay, bw);
+				}
+			}
+		}
+	}
+
+	private int node(IntIntMap nodes, int id) throws IOException {
+		int node = nodes.get(id);
+		if (node < 0) {
+			throw error("unknown node " + id);
+		}
+		return node;
+	}
+
+	private void readEdgeList(CompactGraph graph) throws IOException {
+		while (nextLine()) {
+			if (!nextToken() || buffer[tokenStart] == '#' || buffer[tokenStart] == '%') {
+				continue;
+			}
+			int from = parseInt();
+			if (!nextToken()) {
+				throw error("missing toNode");
+			}
+			int to = parseInt();
+			if (from < 0 || to < 0) {
+				throw error("negative node");
+			}
+			float delay = nextToken() ? parseFloat() : defaultDelay;
+			float bw = nextToken() ? parseFloat() : defaultBw;
+			while (graph.getNumberOfNodes() <= Math.max(from, to)) {
+				graph.addNode(graph.getNumberOfNodes(), 0, 0);
+			}
+			graph.addLink(from, to, delay, bw);
+		}
+	}
+
+	private void readAsRelationships(CompactGraph graph) throws IOException {
+		// the AS numbers, unsigned 32-bit integers, mapped to their nodes
+		IntIntMap nodes = new IntIntMap(-1);
+		while (nextLine()) {
+			if (!nextField() || buffer[tokenStart] == '#') {
+				continue;
+			}
+			int from = asNode(graph, nodes, parseLong());
+			if (!nextField()) {
+				throw error("missing AS2");
+			}
+			int to = asNode(graph, nodes, parseLong());
+			graph.addLink(from, to, defaultDelay, defaultBw);
+		}
+	}
+
+	private int asNode(CompactGraph graph, IntIntMap nodes, long as) throws IOException {
+		if (as < 0 || as > 0xffffffffL) {
+			throw error("AS number out of range");
+		}
+		int node = nodes.get((int) as);
+		if (node < 0) {
+			node = graph.addNode(as, 0, 0);
+			nodes.put((int) as, node);
+		}
+		return node;
+	}
+
+	/**
+	 * Moves to the next line, reading more of the stream if needed.
+	 *
+	 * @return false at the end of the stream
+	 */
+	private boolean nextLine() throws IOException {
+		int start = lineEnd;
+		if (start < limit && buffer[start] == '\n') {
+			start++;
+		}
+		int end = start;
+		while (true) {
+			while (end < limit && buffer[end] != '\n') {
+				end++;
+			}
+			if (end < limit) {
+				break;
+			}
+			// the line goes on past the bytes read: keep it and read more
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, limit - start);
+				end -= start;
+				limit -= start;
+				start = 0;
+			}
+			if (limit == buffer.length) {
+				buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+			}
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if (read < 0) {
+				if (start == limit) {
+					lineEnd = limit;
+					return false;
+				}
+				break;
+			}
+			limit += read;
+		}
+		lineStart = start;
+		lineEnd = end;
+		position = start;
+		lineNumber++;
+		return true;
+	}
+
+	private boolean lineContains(byte[] text) {
+		outer: for (int i = lineStart; i <= lineEnd - text.length; i++) {
+			for (int j = 0; j < text.length; j++) {
+				if (buffer[i + j] != text[j]) {
+					continue outer;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves to the next token of the line, separated by white space.
+	 *
+	 * @return false at the end of the line
+	 */
+	private boolean nextToken() {
+		int i = position;
+		while (i < lineEnd && buffer[i] <= ' ') {
+			i++;
+		}
+		if (i == lineEnd) {
+			position = i;
+			return false;
+		}
+		tokenStart = i;
+		while (i < lineEnd && buffer[i] > ' ') {
+			i++;
+		}
+		tokenEnd = i;
+		position = i;
+		return true;
+	}
+
+	/**
+	 * Moves to the next field of the line, separated by '|'.
+	 *
+	 * @return false at the end of the line
+	 */
+	private boolean nextField() {
+		if (position > lineEnd || (position == lineEnd && position > lineStart)) {
+			return false;
+		}
+		int i = position;
+		while (i < lineEnd && buffer[i] != '|') {
+			i++;
+		}
+		tokenStart = position;
+		tokenEnd = i;
+		position = i + 1;
+		// trims the white space, and the carriage return of the last field
+		while (tokenStart < tokenEnd && buffer[tokenStart] <= ' ') {
+			tokenStart++;
+		}
+		while (tokenEnd > tokenStart && buffer[tokenEnd - 1] <= ' ') {
+			tokenEnd--;
+		}
+		return tokenStart < tokenEnd;
+	}
+
+	private int parseInt() throws IOException {
+		long value = parseLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw error("integer out of range");
+		}
+		return (int) value;
+	}
+
+	private long parseLong() throws IOException {
+		int i = tokenStart;
+		boolean negative = i < tokenEnd && buffer[i] == '-';
+		if (negative || (i < tokenEnd && buffer[i] == '+')) {
+			i++;
+		}
+		if (i == tokenEnd || tokenEnd - i > 18) {
+			throw error("not an integer");
+		}
+		long value = 0;
+		for (; i < tokenEnd; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw error("not an integer");
+			}
+			value = 10 * value + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the token as a float, rounded as Float.parseFloat does. The short decimals are
+	 * decoded from the bytes: their digits and the power of ten are exact floats, so their
+	 * quotient is correctly rounded. The others go through Float.parseFloat.
+	 */
+	private float parseFloat() throws IOException {
+		int i = tokenStart;
+		boolean negative = i < tokenEnd && buffer[i] == '-';
+		if (negative || (i < tokenEnd && buffer[i] == '+')) {
+			i++;
+		}
+		int mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < tokenEnd; i++) {
+			byte b = buffer[i];
+			if (b == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+				continue;
+			}
+			if (b < '0' || b > '9' || mantissa >= 1 << 20) {
+				break;
+			}
+			mantissa = 10 * mantissa + (b - '0');
+			digits++;
+			if (fractionDigits >= 0) {
+				fractionDigits++;
+			}
+		}
+		if (i == tokenEnd && digits > 0 && mantissa <= 1 << 24 && fractionDigits < POWERS_OF_TEN.length) {
+			float value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+			return negative ? -value : value;
+		}
+		try {
+			return Float.parseFloat(new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.US_ASCII));
+		} catch (NumberFormatException e) {
+			throw error("not a number");
+		}
+	}
+
+	private IOException error(String message) {
+		String token = new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.US_ASCII);
+		return new IOException("Line " + lineNumber + ", \"" + token + "\": " + message);
+	}
+
+}
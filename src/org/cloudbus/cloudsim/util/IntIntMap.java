@@ -0,0 +1,238 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from int keys to int values, stored in an open addressing table of primitive ints so that
+ * no key or value is boxed. A value that is not in the map reads as the no entry value given at
+ * creation.
+ *
+ * @author Atakan
+ */
+public class IntIntMap {
+
+	/** The initial capacity, a power of two. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The value returned for the keys that are not in the map. */
+	private final int noEntryValue;
+
+	/** The keys of the slots. */
+	private int[] keys;
+
+	/** The values of the slots. */
+	private int[] values;
+
+	/** Whether the slots are used. */
+	private boolean[] used;
+
+	/** The number of keys. */
+	private int size = 0;
+
+	/**
+	 * Creates an empty map.
+	 *
+	 * @param noEntryValue the value returned for the keys that are not in the map
+	 */
+	public IntIntMap(int noEntryValue) {
+		this.noEntryValue = noEntryValue;
+		keys = new int[INITIAL_CAPACITY];
+		values = new int[INITIAL_CAPACITY];
+		used = new boolean[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value or the no entry value if the key is not in the map
+	 */
+	public int get(int key) {
+		int slot = find(key);
+		return slot < 0 ? noEntryValue : values[slot];
+	}
+
+	/**
+	 * Checks whether a key is in the map.
+	 *
+	 * @param key the key
+	 * @return true, if the key is in the map
+	 */
+	public boolean containsKey(int key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Sets the value of a key.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 * @return the previous value or the no entry value if the key was not in the map
+	 */
+	public int put(int key, int value) {
+		int slot = slotOf(key);
+		if (used[slot]) {
+			int previous = values[slot];
+			values[slot] = value;
+			return previous;
+		}
+		insert(slot, key, value);
+		return noEntryValue;
+	}
+
+	/**
+	 * Adds a delta to the value of a key. A key that is not in the map is added with the delta as
+	 * its value.
+	 *
+	 * @param key the key
+	 * @param delta the delta
+	 * @return the new value
+	 */
+	public int addTo(int key, int delta) {
+		int slot = slotOf(key);
+		if (used[slot]) {
+			values[slot] += delta;
+			return values[slot];
+		}
+		insert(slot, key, delta);
+		return delta;
+	}
+
+	/**
+	 * Removes a key.
+	 *
+	 * @param key the key
+	 * @return the removed value or the no entry value if the key was not in the map
+	 */
+	public int remove(int key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return noEntryValue;
+		}
+		int previous = values[slot];
+		deleteSlot(slot);
+		size--;
+		return previous;
+	}
+
+	/**
+	 * Gets the number of keys.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the map is empty.
+	 *
+	 * @return true, if the map is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the keys.
+	 */
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(used, false);
+			size = 0;
+		}
+	}
+
+	private void insert(int slot, int key, int value) {
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		if (2 * ++size > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Finds the slot of a key.
+	 *
+	 * @param key the key
+	 * @return the slot or -1 if the key is not in the map
+	 */
+	private int find(int key) {
+		int slot = slotOf(key);
+		return used[slot] ? slot : -1;
+	}
+
+	/**
+	 * Finds the slot of a key or the empty slot where it would be inserted.
+	 *
+	 * @param key the key
+	 * @return the slot
+	 */
+	private int slotOf(int key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot, shifting back the entries of the same probe sequence so that no tombstone is
+	 * needed.
+	 *
+	 * @param slot the slot
+	 */
+	private void deleteSlot(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		int probe = (hole + 1) & mask;
+		while (used[probe]) {
+			int home = mix(keys[probe]) & mask;
+			// move the entry if its home is not between the hole and itself
+			if (((probe - home) & mask) >= ((probe - hole) & mask)) {
+				keys[hole] = keys[probe];
+				values[hole] = values[probe];
+				hole = probe;
+			}
+			probe = (probe + 1) & mask;
+		}
+		used[hole] = false;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new int[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = mix(oldKeys[i]) & mask;
+				while (used[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				used[slot] = true;
+			}
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
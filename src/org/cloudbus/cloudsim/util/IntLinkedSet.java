@@ -0,0 +1,438 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An ordered set of int keys, each one with an int weight. The keys are kept in a doubly-linked
+ * list stored in primitive arrays and an open addressing table maps each key to its node, so
+ * adding, removing, looking up a key and moving it to either end of the list take constant time
+ * without boxing. The total weight of the keys is kept up to date.
+ * <p>
+ * Keeping the list in access order, i.e. moving a key to the last position whenever it is used,
+ * gives an LRU list whose first key is the least recently used one.
+ *
+ * @author Atakan
+ */
+public class IntLinkedSet {
+
+	/** The index of no node. */
+	private static final int NIL = -1;
+
+	/** The initial capacity, a power of two. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The keys of the nodes. */
+	private int[] keys;
+
+	/** The weights of the nodes. */
+	private int[] weights;
+
+	/** The previous nodes. */
+	private int[] prev;
+
+	/** The next nodes, also used to chain the free nodes. */
+	private int[] next;
+
+	/** The nodes of the index slots plus one, 0 for an empty slot. */
+	private int[] index;
+
+	/** The first node. */
+	private int head = NIL;
+
+	/** The last node. */
+	private int tail = NIL;
+
+	/** The first free node. */
+	private int free = NIL;
+
+	/** The number of nodes ever used. */
+	private int used = 0;
+
+	/** The number of keys. */
+	private int size = 0;
+
+	/** The total weight of the keys. */
+	private long weight = 0;
+
+	/**
+	 * Creates an empty set.
+	 */
+	public IntLinkedSet() {
+		keys = new int[INITIAL_CAPACITY / 2];
+		weights = new int[INITIAL_CAPACITY / 2];
+		prev = new int[INITIAL_CAPACITY / 2];
+		next = new int[INITIAL_CAPACITY / 2];
+		index = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds a key at the last position.
+	 *
+	 * @param key the key
+	 * @param keyWeight the weight of the key
+	 * @return true, if the key is added; false if it is already in the set
+	 */
+	public boolean addLast(int key, int keyWeight) {
+		if (find(key) >= 0) {
+			return false;
+		}
+		int node = allocate(key, keyWeight);
+		linkLast(node);
+		return true;
+	}
+
+	/**
+	 * Adds a key at the first position.
+	 *
+	 * @param key the key
+	 * @param keyWeight the weight of the key
+	 * @return true, if the key is added; false if it is already in the set
+	 */
+	public boolean addFirst(int key, int keyWeight) {
+		if (find(key) >= 0) {
+			return false;
+		}
+		int node = allocate(key, keyWeight);
+		linkFirst(node);
+		return true;
+	}
+
+	/**
+	 * Checks whether a key is in the set.
+	 *
+	 * @param key the key
+	 * @return true, if the key is in the set
+	 */
+	public boolean contains(int key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Gets the weight of a key.
+	 *
+	 * @param key the key
+	 * @return the weight or -1 if the key is not in the set
+	 */
+	public int weightOf(int key) {
+		int slot = find(key);
+		return slot < 0 ? -1 : weights[index[slot] - 1];
+	}
+
+	/**
+	 * Moves a key to the last position.
+	 *
+	 * @param key the key
+	 * @return true, if the key is in the set
+	 */
+	public boolean moveToLast(int key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return false;
+		}
+		int node = index[slot] - 1;
+		if (node != tail) {
+			unlink(node);
+			linkLast(node);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves a key to the first position.
+	 *
+	 * @param key the key
+	 * @return true, if the key is in the set
+	 */
+	public boolean moveToFirst(int key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return false;
+		}
+		int node = index[slot] - 1;
+		if (node != head) {
+			unlink(node);
+			linkFirst(node);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a key.
+	 *
+	 * @param key the key
+	 * @return true, if the key was in the set
+	 */
+	public boolean remove(int key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return false;
+		}
+		int node = index[slot] - 1;
+		deleteSlot(slot);
+		unlink(node);
+		release(node);
+		return true;
+	}
+
+	/**
+	 * Gets the key at the first position.
+	 *
+	 * @return the first key
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public int first() {
+		if (head == NIL) {
+			throw new NoSuchElementException();
+		}
+		return keys[head];
+	}
+
+	/**
+	 * Gets the key at the last position.
+	 *
+	 * @return the last key
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public int last() {
+		if (tail == NIL) {
+			throw new NoSuchElementException();
+		}
+		return keys[tail];
+	}
+
+	/**
+	 * Removes the key at the first position.
+	 *
+	 * @return the removed key
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public int removeFirst() {
+		int key = first();
+		remove(key);
+		return key;
+	}
+
+	/**
+	 * Removes the key at the last position.
+	 *
+	 * @return the removed key
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public int removeLast() {
+		int key = last();
+		remove(key);
+		return key;
+	}
+
+	/**
+	 * Gets the number of keys.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the set is empty.
+	 *
+	 * @return true, if the set is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the total weight of the keys.
+	 *
+	 * @return the total weight
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Copies the keys, from the first to the last position, to the start of an array. A new
+	 * array is allocated only if the given one is too short, so that a caller reusing its array
+	 * reads the keys without allocating.
+	 *
+	 * @param array the array, may be null
+	 * @return the array holding the keys in its first {@link #size()} elements
+	 */
+	public int[] toArray(int[] array) {
+		if (array == null || array.length < size) {
+			array = new int[Math.max(size, INITIAL_CAPACITY / 2)];
+		}
+		int i = 0;
+		for (int node = head; node != NIL; node = next[node]) {
+			array[i++] = keys[node];
+		}
+		return array;
+	}
+
+	/**
+	 * Adds the keys of another set that are not in this one, at the last position and with
+	 * their weights.
+	 *
+	 * @param other the other set
+	 */
+	public void addAll(IntLinkedSet other) {
+		for (int node = other.head; node != NIL; node = other.next[node]) {
+			addLast(other.keys[node], other.weights[node]);
+		}
+	}
+
+	/**
+	 * Removes all the keys.
+	 */
+	public void clear() {
+		Arrays.fill(index, 0);
+		head = NIL;
+		tail = NIL;
+		free = NIL;
+		used = 0;
+		size = 0;
+		weight = 0;
+	}
+
+	private int allocate(int key, int keyWeight) {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = next[node];
+		} else {
+			if (used == keys.length) {
+				int capacity = keys.length * 2;
+				keys = Arrays.copyOf(keys, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+				prev = Arrays.copyOf(prev, capacity);
+				next = Arrays.copyOf(next, capacity);
+			}
+			node = used++;
+		}
+		keys[node] = key;
+		weights[node] = keyWeight;
+		size++;
+		weight += keyWeight;
+
+		if (2 * size > index.length) {
+			rehash(index.length * 2);
+		}
+		int mask = index.length - 1;
+		int slot = mix(key) & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = node + 1;
+		return node;
+	}
+
+	private void release(int node) {
+		size--;
+		weight -= weights[node];
+		next[node] = free;
+		free = node;
+	}
+
+	private void linkLast(int node) {
+		prev[node] = tail;
+		next[node] = NIL;
+		if (tail == NIL) {
+			head = node;
+		} else {
+			next[tail] = node;
+		}
+		tail = node;
+	}
+
+	private void linkFirst(int node) {
+		prev[node] = NIL;
+		next[node] = head;
+		if (head == NIL) {
+			tail = node;
+		} else {
+			prev[head] = node;
+		}
+		head = node;
+	}
+
+	private void unlink(int node) {
+		int p = prev[node];
+		int n = next[node];
+		if (p == NIL) {
+			head = n;
+		} else {
+			next[p] = n;
+		}
+		if (n == NIL) {
+			tail = p;
+		} else {
+			prev[n] = p;
+		}
+	}
+
+	/**
+	 * Finds the index slot of a key.
+	 *
+	 * @param key the key
+	 * @return the slot or -1 if the key is not in the set
+	 */
+	private int find(int key) {
+		int mask = index.length - 1;
+		for (int slot = mix(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+			if (keys[index[slot] - 1] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties an index slot, shifting back the entries of the same probe sequence so that no
+	 * tombstone is needed.
+	 *
+	 * @param slot the slot
+	 */
+	private void deleteSlot(int slot) {
+		int mask = index.length - 1;
+		int hole = slot;
+		int probe = (hole + 1) & mask;
+		while (index[probe] != 0) {
+			int home = mix(keys[index[probe] - 1]) & mask;
+			// move the entry if its home is not between the hole and itself
+			if (((probe - home) & mask) >= ((probe - hole) & mask)) {
+				index[hole] = index[probe];
+				hole = probe;
+			}
+			probe = (probe + 1) & mask;
+		}
+		index[hole] = 0;
+	}
+
+	private void rehash(int capacity) {
+		index = new int[capacity];
+		int mask = capacity - 1;
+		for (int node = head; node != NIL; node = next[node]) {
+			int slot = mix(keys[node]) & mask;
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = node + 1;
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -39,13 +39,7 @@ public class GeographicalLocality {
             reader = new DatabaseReader.Builder(GeoDatabase).build();
             wsReader.open(requestFile);
 
-            int iii = 0;
-            for (RequestDatum w : wsReader.readNRecords(numRecords)) {
-                iii++;
-                if (iii % 1000 > 0) {
-                    continue;
-                }
-                
+            for (RequestDatum w : wsReader.records(new RequestFilter().setLimit(numRecords).setStride(1000))) {
                 InetAddress clientIP = InetAddress.getByName(w.getClientID());
 
                 CityResponse clientCity;
@@ -0,0 +1,140 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package parsers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Gives the identifiers found in a trace dense int ids, from 0, looking them
+ * up by their bytes so no String is created for an identifier seen before.
+ * The String of an id is created once, when it is first asked for.
+ *
+ * @author ataka
+ */
+public class IdInterner {
+
+    private int[] table = new int[1024];
+    private int[] hashes = new int[256];
+    private int[] offsets = new int[256];
+    private int[] lengths = new int[256];
+    private String[] names = new String[256];
+    private byte[] pool = new byte[4096];
+    private int poolSize;
+    private int size;
+
+    public IdInterner() {
+        Arrays.fill(table, -1);
+    }
+
+    /**
+     * Gets the id of the identifier held by a range of bytes, giving it the
+     * next id if it is new.
+     *
+     * @param buffer the bytes
+     * @param from the position of the first byte
+     * @param to the position after the last byte
+     * @return the id
+     */
+    public int intern(ByteBuffer buffer, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        hash ^= hash >>> 16;
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (id < 0) {
+                id = add(buffer, from, to, hash);
+                table[slot] = id;
+                if (2 * size > table.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (hashes[id] == hash && equals(id, buffer, from, to)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Gets the identifier of an id.
+     *
+     * @param id the id
+     * @return the identifier
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown id " + id + ".");
+        }
+        String name = names[id];
+        if (name == null) {
+            name = new String(pool, offsets[id], lengths[id], StandardCharsets.UTF_8);
+            names[id] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Gets the number of identifiers.
+     *
+     * @return the number of ids given
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(ByteBuffer buffer, int from, int to, int hash) {
+        int length = to - from;
+        if (size == hashes.length) {
+            int capacity = 2 * size;
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(2 * pool.length, poolSize + length));
+        }
+        for (int i = 0; i < length; i++) {
+            pool[poolSize + i] = buffer.get(from + i);
+        }
+        hashes[size] = hash;
+        offsets[size] = poolSize;
+        lengths[size] = length;
+        poolSize += length;
+        return size++;
+    }
+
+    private boolean equals(int id, ByteBuffer buffer, int from, int to) {
+        if (lengths[id] != to - from) {
+            return false;
+        }
+        for (int i = from, j = offsets[id]; i < to; i++, j++) {
+            if (buffer.get(i) != pool[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+
+}
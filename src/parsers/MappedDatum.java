@@ -0,0 +1,42 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package parsers;
+
+/**
+ * A record read by a {@link MappedTraceReader}. The client and server ids are
+ * shared by all the records of the same client or server, along with their
+ * int ids.
+ *
+ * @author ataka
+ */
+public class MappedDatum extends RequestDatum {
+
+    private final int clientIndex;
+    private final int serverIndex;
+
+    public MappedDatum(long reqTime, int clientIndex, String clientID, int serverIndex, String serverID, int length) {
+        this.reqTime = reqTime;
+        this.clientIndex = clientIndex;
+        this.clientID = clientID;
+        this.serverIndex = serverIndex;
+        this.serverID = serverID;
+        this.length = length;
+    }
+
+    public int getClientIndex() {
+        return clientIndex;
+    }
+
+    public int getServerIndex() {
+        return serverIndex;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedDatum{" + "reqTime=" + reqTime + ", clientID=" + clientID + ", serverID=" + serverID + ", length=" + length + '}';
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package parsers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads traces of tab separated records (request time, client id, server id,
+ * length), the format read by {@link RequestDatum#RequestDatum(String)}, from
+ * a memory-mapped file. The bytes are scanned in place: the numbers are
+ * decoded without a String, and the client and server ids are interned by
+ * their bytes into int ids, so {@link #nextRecord()} allocates nothing once
+ * the ids are known.
+ * <p>
+ * The file is mapped in segments of 1 GB overlapping by the longest line
+ * allowed, so a line is always read from a single segment, and closed once
+ * mapped.
+ *
+ * @author ataka
+ */
+public class MappedTraceReader implements RequestTextReaderInterface {
+
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int MAX_LINE_BYTES = 1 << 16;
+
+    private final IdInterner clients = new IdInterner();
+    private final IdInterner servers = new IdInterner();
+
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private long fileSize;
+    private long offset;
+    private long lineNumber;
+    private boolean pending;
+
+    // the current line
+    private ByteBuffer line;
+    private int lineStart;
+    private int lineEnd;
+
+    // the current record
+    private long reqTime;
+    private int clientId;
+    private int serverId;
+    private int length;
+
+    public ArrayList<RequestDatum> read(String aFileName) throws FileNotFoundException, ParseException {
+        ArrayList<RequestDatum> readRecords = new ArrayList<RequestDatum>();
+
+        File file = new File(aFileName);
+
+        if (file.isFile()) {
+            readAllLines(file, readRecords);
+        } else if (file.isDirectory()) {
+            for (File f : file.listFiles()) {
+                if (f.getName().endsWith(".log")) {
+                    readAllLines(f, readRecords);
+                }
+            }
+        }
+
+        return readRecords;
+
+    }
+
+    private void readAllLines(File f, ArrayList<RequestDatum> readRecords) throws FileNotFoundException {
+        open(f.getPath());
+        while (nextRecord()) {
+            readRecords.add(toDatum());
+        }
+    }
+
+    public void open(String fName) throws FileNotFoundException {
+        RandomAccessFile raf = new RandomAccessFile(fName, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            fileSize = channel.size();
+            segments = new ByteBuffer[(int) Math.max(1, (fileSize + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * SEGMENT_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(fileSize - position, SEGMENT_BYTES + MAX_LINE_BYTES));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // the segments stay mapped
+            }
+        }
+        offset = 0;
+        lineNumber = 0;
+        pending = false;
+    }
+
+    public boolean hasNext() {
+        if (!pending) {
+            pending = nextLine();
+        }
+        return pending;
+    }
+
+    /**
+     * Reads the next record. Its fields are then given by the getters of the
+     * reader, until the next call.
+     *
+     * @return false if there is no record left
+     */
+    public boolean nextRecord() {
+        if (!hasNext()) {
+            return false;
+        }
+        pending = false;
+        parseRecord();
+        return true;
+    }
+
+    public List<RequestDatum> readNRecords(int limit) {
+        ArrayList<RequestDatum> list = new ArrayList<>();
+        int counter = 0;
+
+        while (counter++ < limit && nextRecord()) {
+            list.add(toDatum());
+        }
+
+        return list;
+    }
+
+    public Iterator<RequestDatum> iterator(final RequestFilter filter) {
+        return new Iterator<RequestDatum>() {
+            private long read;
+            private RequestDatum next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && read < filter.getLimit() && MappedTraceReader.this.hasNext()) {
+                    pending = false;
+                    read++;
+                    if (read % filter.getStride() > 0) {
+                        continue;
+                    }
+                    parseRecord();
+                    if (filter.inWindow(reqTime)) {
+                        next = toDatum();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public RequestDatum next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                RequestDatum datum = next;
+                next = null;
+                return datum;
+            }
+        };
+    }
+
+    public long getReqTime() {
+        return reqTime;
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    public int getServerId() {
+        return serverId;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public String getClientName(int id) {
+        return clients.getName(id);
+    }
+
+    public String getServerName(int id) {
+        return servers.getName(id);
+    }
+
+    public int getNumberOfClients() {
+        return clients.size();
+    }
+
+    public int getNumberOfServers() {
+        return servers.size();
+    }
+
+    private MappedDatum toDatum() {
+        return new MappedDatum(reqTime, clientId, clients.getName(clientId), serverId, servers.getName(serverId), length);
+    }
+
+    /**
+     * Moves to the next line that is not blank, trimmed.
+     */
+    private boolean nextLine() {
+        while (offset < fileSize) {
+            int segment = (int) (offset / SEGMENT_BYTES);
+            ByteBuffer buffer = segments[segment];
+            int start = (int) (offset - segment * SEGMENT_BYTES);
+            int limit = buffer.limit();
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && segment * SEGMENT_BYTES + limit < fileSize) {
+                throw new IllegalArgumentException("Line " + (lineNumber + 1) + " is longer than " + MAX_LINE_BYTES + " bytes.");
+            }
+            offset = segment * SEGMENT_BYTES + end + 1;
+            lineNumber++;
+            while (start < end && buffer.get(start) <= ' ') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                line = buffer;
+                lineStart = start;
+                lineEnd = end;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void parseRecord() {
+        int end = field(lineStart);
+        reqTime = parseLong(lineStart, end);
+        int start = end + 1;
+        end = field(start);
+        clientId = clients.intern(line, start, end);
+        start = end + 1;
+        end = field(start);
+        serverId = servers.intern(line, start, end);
+        start = end + 1;
+        long value = parseLong(start, field(start));
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw badNumber(start);
+        }
+        length = (int) value;
+    }
+
+    /**
+     * Finds the end of the field starting at a position.
+     */
+    private int field(int start) {
+        if (start > lineEnd) {
+            throw new IllegalArgumentException("Line " + lineNumber + " has less than 4 fields.");
+        }
+        int end = start;
+        while (end < lineEnd && line.get(end) != '\t') {
+            end++;
+        }
+        return end;
+    }
+
+    private long parseLong(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (line.get(i) == '-' || line.get(i) == '+')) {
+            negative = line.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw badNumber(start);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.get(i) - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                throw badNumber(start);
+            }
+            // accumulated negatively, as Long.parseLong does, to reach Long.MIN_VALUE
+            value = 10 * value - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw badNumber(start);
+        }
+        return negative ? value : -value;
+    }
+
+    private NumberFormatException badNumber(int start) {
+        int end = field(start);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = line.get(start + i);
+        }
+        return new NumberFormatException("For input string: \"" + new String(bytes) + "\" at line " + lineNumber);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package parsers;
+
+/**
+ * The records to take from a trace: at most a number of records of the trace,
+ * every stride-th of them, and among those the ones requested in a time window.
+ * The stride counts the records of the trace, so the sample does not change
+ * with the window.
+ *
+ * @author ataka
+ */
+public class RequestFilter {
+
+    private long limit = Long.MAX_VALUE;
+    private int stride = 1;
+    private long fromTime = Long.MIN_VALUE;
+    private long toTime = Long.MAX_VALUE;
+
+    /**
+     * Reads at most a number of records of the trace, taken or not.
+     *
+     * @param limit the number of records
+     * @return this filter
+     */
+    public RequestFilter setLimit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative.");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Takes every stride-th record: the stride-th, the 2*stride-th and so on.
+     *
+     * @param stride the stride, 1 to take all the records
+     * @return this filter
+     */
+    public RequestFilter setStride(int stride) {
+        if (stride < 1) {
+            throw new IllegalArgumentException("Stride must be positive.");
+        }
+        this.stride = stride;
+        return this;
+    }
+
+    /**
+     * Takes the records requested from a time on, up to another one.
+     *
+     * @param fromTime the first request time taken
+     * @param toTime the request time after the last one taken
+     * @return this filter
+     */
+    public RequestFilter setTimeWindow(long fromTime, long toTime) {
+        if (fromTime > toTime) {
+            throw new IllegalArgumentException("Time window ends before it starts.");
+        }
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        return this;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public long getFromTime() {
+        return fromTime;
+    }
+
+    public long getToTime() {
+        return toTime;
+    }
+
+    /**
+     * Tells whether the records of a time are in the window.
+     *
+     * @param time the request time
+     * @return true, if the window holds the time
+     */
+    public boolean inWindow(long time) {
+        return time >= fromTime && time < toTime;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package parsers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * Reads the records of a trace one line at a time, as they are asked for, so
+ * the memory does not grow with the trace. The lines skipped by the stride of
+ * the filter are not parsed.
+ *
+ * @author ataka
+ */
+public abstract class RequestIterator implements Iterator<RequestDatum> {
+
+    private final Scanner fileScan;
+    private final RequestFilter filter;
+    private long read;
+    private RequestDatum next;
+
+    /**
+     * Creates an iterator over the lines left in a file.
+     *
+     * @param fileScan the file
+     * @param filter the records to take
+     */
+    public RequestIterator(Scanner fileScan, RequestFilter filter) {
+        if (fileScan == null) {
+            throw new IllegalStateException("No file is open.");
+        }
+        this.fileScan = fileScan;
+        this.filter = filter;
+    }
+
+    /**
+     * Parses a line of the trace.
+     *
+     * @param line the line, trimmed
+     * @return the record
+     */
+    protected abstract RequestDatum parse(String line);
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && read < filter.getLimit() && fileScan.hasNextLine()) {
+            String line = fileScan.nextLine().trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            read++;
+            if (read % filter.getStride() > 0) {
+                continue;
+            }
+            RequestDatum datum = parse(line);
+            if (filter.inWindow(datum.getReqTime())) {
+                next = datum;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public RequestDatum next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RequestDatum datum = next;
+        next = null;
+        return datum;
+    }
+
+    /**
+     * Gets the number of records read from the trace, taken or not.
+     *
+     * @return the number of records
+     */
+    public long getReadCount() {
+        return read;
+    }
+
+}
@@ -8,7 +8,12 @@ package parsers;
 import java.io.FileNotFoundException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  *
@@ -23,4 +28,37 @@ public interface RequestTextReaderInterface {
     public boolean hasNext();
 
     public List<RequestDatum> readNRecords(int limit);
+
+    /**
+     * Reads the records left in the opened file lazily, keeping one record at
+     * a time in memory.
+     *
+     * @param filter the records to take
+     * @return the records
+     */
+    public Iterator<RequestDatum> iterator(RequestFilter filter);
+
+    /**
+     * Reads the records left in the opened file lazily, for a for-each loop.
+     * The records can be iterated once.
+     *
+     * @param filter the records to take
+     * @return the records
+     */
+    public default Iterable<RequestDatum> records(final RequestFilter filter) {
+        return new Iterable<RequestDatum>() {
+            @Override
+            public Iterator<RequestDatum> iterator() {
+                return RequestTextReaderInterface.this.iterator(filter);
+            }
+        };
+    }
+
+    public default Spliterator<RequestDatum> spliterator(RequestFilter filter) {
+        return Spliterators.spliteratorUnknownSize(iterator(filter), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    public default Stream<RequestDatum> stream(RequestFilter filter) {
+        return StreamSupport.stream(spliterator(filter), false);
+    }
 }
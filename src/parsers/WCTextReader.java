@@ -10,6 +10,7 @@ import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
@@ -98,4 +99,13 @@ public class WCTextReader implements RequestTextReaderInterface{
         return wcList;
     }
 
+    public Iterator<RequestDatum> iterator(RequestFilter filter) {
+        return new RequestIterator(fileScan, filter) {
+            @Override
+            protected RequestDatum parse(String line) {
+                return new WCDatum(line);
+            }
+        };
+    }
+
 }
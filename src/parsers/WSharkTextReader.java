@@ -14,9 +14,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.regex.Pattern;
 
 /**
  *
@@ -24,6 +26,8 @@ import java.util.Scanner;
  */
 public class WSharkTextReader implements RequestTextReaderInterface {
 
+    private static final Pattern SPACES = Pattern.compile(" +");
+
     private Scanner fileScan;
 
     public ArrayList<RequestDatum> read(String aFileName) throws FileNotFoundException, ParseException {
@@ -50,7 +54,7 @@ public class WSharkTextReader implements RequestTextReaderInterface {
         String line;
 
         while (s.hasNext()) {
-            line = s.nextLine().trim().replaceAll(" +", " ");
+            line = SPACES.matcher(s.nextLine().trim()).replaceAll(" ");
             if (line.length() > 0 && Character.isDigit(line.charAt(0))) {
                 readRecords.add(WSharkDatum.parseWSharkDatum(line));
             }
@@ -80,7 +84,7 @@ public class WSharkTextReader implements RequestTextReaderInterface {
         int counter = 0;
 
         while (s.hasNext()) {
-            line = s.nextLine().trim().replaceAll(" +", " ");
+            line = SPACES.matcher(s.nextLine().trim()).replaceAll(" ");
             if (line.length() > 0 && Character.isDigit(line.charAt(0))) {
                 try {
                     temp = WSharkDatum.parseWSharkDatum(line);
@@ -114,4 +118,13 @@ public class WSharkTextReader implements RequestTextReaderInterface {
         return wsList;
     }
 
+    public Iterator<RequestDatum> iterator(RequestFilter filter) {
+        return new RequestIterator(fileScan, filter) {
+            @Override
+            protected RequestDatum parse(String line) {
+                return new WSharkDatum(line);
+            }
+        };
+    }
+
 }